@@ -0,0 +1,7 @@
+call mvn install
+if %errorlevel% neq 0 goto :eof
+
+call mvn -f bench package
+if %errorlevel% neq 0 goto :eof
+
+java --enable-preview -jar bench\target\benchmarks.jar -prof gc %*
@@ -0,0 +1,80 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+// Class files for the benchmarks to work on. Real classes come from the libraries jad depends
+// on, whose versions the main pom pins, so every run sees the same bytes; methods of chosen
+// sizes are generated, the same every time.
+final class Corpus {
+  private static final String[] NAMES = {
+    "org/objectweb/asm/ClassReader",
+    "org/objectweb/asm/ClassWriter",
+    "org/objectweb/asm/MethodWriter",
+    "org/objectweb/asm/Frame",
+    "org/objectweb/asm/SymbolTable",
+    "org/objectweb/asm/Type",
+    "org/objectweb/asm/tree/ClassNode",
+    "org/objectweb/asm/tree/MethodNode",
+    "org/objectweb/asm/tree/InsnList",
+    "org/apache/commons/text/StringEscapeUtils",
+    "org/apache/commons/text/StringSubstitutor",
+    "org/apache/commons/text/WordUtils",
+  };
+
+  private Corpus() {}
+
+  static List<byte[]> classes() throws IOException {
+    var v = new ArrayList<byte[]>();
+    for (var name : NAMES)
+      try (var stream = ClassLoader.getSystemResourceAsStream(name + ".class")) {
+        if (stream == null) throw new IllegalStateException(name + ": not on the class path");
+        v.add(stream.readAllBytes());
+      }
+    return v;
+  }
+
+  // a static method of about eight instructions per block, with a line number, a branch
+  // and a call in each, like ordinary compiled code; a few thousand blocks come near
+  // the limit of 64K bytes of code
+  static MethodNode method(int blocks) {
+    var classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    classWriter.visit(V17, ACC_PUBLIC | ACC_SUPER, "Generated", null, "java/lang/Object", null);
+    var mv = classWriter.visitMethod(ACC_PUBLIC | ACC_STATIC, "run", "(I)I", null, null);
+    mv.visitCode();
+    for (var i = 0; i < blocks; i++) {
+      var start = new Label();
+      var next = new Label();
+      mv.visitLabel(start);
+      mv.visitLineNumber(i + 1, start);
+      mv.visitVarInsn(ILOAD, 0);
+      mv.visitIntInsn(BIPUSH, i % 100);
+      mv.visitInsn(IADD);
+      mv.visitVarInsn(ISTORE, 0);
+      mv.visitVarInsn(ILOAD, 0);
+      mv.visitJumpInsn(IFEQ, next);
+      mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+      mv.visitLdcInsn("block " + i);
+      mv.visitMethodInsn(
+          INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
+      mv.visitLabel(next);
+    }
+    mv.visitVarInsn(ILOAD, 0);
+    mv.visitInsn(IRETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+    classWriter.visitEnd();
+
+    var classNode = new ClassNode(ASM9);
+    new ClassReader(classWriter.toByteArray()).accept(classNode, 0);
+    return classNode.methods.get(0);
+  }
+}
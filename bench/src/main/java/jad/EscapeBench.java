@@ -0,0 +1,46 @@
+package jad;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.text.StringEscapeUtils;
+import org.openjdk.jmh.annotations.*;
+
+// the escaping done for every constant and member name printed
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class EscapeBench {
+  // a plain string, as most are, and one with something to escape
+  public String plain = "java/lang/StringBuilder";
+  public String special = "line\n\ttab \"quoted\" é中";
+  public Integer number = 12345;
+  public String init = "<init>";
+  public String lambda = "lambda$main$0";
+
+  @Benchmark
+  public String quotePlain() {
+    return Etc.quote(plain);
+  }
+
+  @Benchmark
+  public String quoteSpecial() {
+    return Etc.quote(special);
+  }
+
+  @Benchmark
+  public String quoteNumber() {
+    return Etc.quote(number);
+  }
+
+  @Benchmark
+  public String escapeInit() {
+    return StringEscapeUtils.escapeHtml4(init);
+  }
+
+  @Benchmark
+  public String escapeLambda() {
+    return StringEscapeUtils.escapeHtml4(lambda);
+  }
+}
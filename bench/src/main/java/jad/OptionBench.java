@@ -0,0 +1,56 @@
+package jad;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Option.parse on a response file listing a large build's worth of inputs
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class OptionBench {
+  @Param({"1000", "100000"})
+  public int lines;
+
+  private final Option[] options = {
+    new Option("number of threads", "N", "j") {
+      void accept(String arg) {}
+    },
+    new Option("render each class as soon as it is parsed", null, "stream") {
+      void accept(String arg) {}
+    },
+  };
+  private Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    file = Files.createTempFile("jad", ".args");
+    var sb = new StringBuilder();
+    sb.append("-j\n4\n-stream\n");
+    for (var i = 0; i < lines; i++)
+      sb.append("build/classes/com/example/module")
+          .append(i % 100)
+          .append("/Class")
+          .append(i)
+          .append(".class\n");
+    Files.writeString(file, sb, StandardCharsets.UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(file);
+  }
+
+  @Benchmark
+  public int parse() throws IOException {
+    Option.positionalArgs.clear();
+    Option.parse(options, new String[] {"@" + file});
+    return Option.positionalArgs.size();
+  }
+}
@@ -0,0 +1,42 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// ClassReader to ClassNode over the whole corpus, in full and as -summary reads it
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class ParseBench {
+  @Param({"full", "summary"})
+  public String mode;
+
+  private List<byte[]> classes;
+  private int flags;
+
+  @Setup
+  public void setup() throws IOException {
+    classes = Corpus.classes();
+    if (mode.equals("summary"))
+      flags = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (var bytes : classes) {
+      var classNode = new ClassNode(ASM9);
+      new ClassReader(bytes).accept(classNode, flags);
+      blackhole.consume(classNode);
+    }
+  }
+}
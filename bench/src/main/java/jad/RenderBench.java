@@ -0,0 +1,36 @@
+package jad;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.tree.MethodNode;
+import org.openjdk.jmh.annotations.*;
+
+// HtmlPrinter.print(MethodNode) on a method the size of a typical one and on one near the limit
+// of the class file format, written through the usual writer to a channel that discards it
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class RenderBench {
+  @Param({"10", "3000"})
+  public int blocks;
+
+  private final HtmlPrinter.Format format = new HtmlPrinter.Format();
+  private MethodNode methodNode;
+
+  @Setup
+  public void setup() {
+    methodNode = Corpus.method(blocks);
+  }
+
+  @Benchmark
+  public void print() throws IOException {
+    try (var writer = new Utf8Writer(Channels.newChannel(OutputStream.nullOutputStream()))) {
+      new HtmlPrinter(format, writer, "").print(methodNode, "Generated.0.html");
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.commons.text.StringEscapeUtils;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+// Where code allocates: objects and arrays made with new, arrays made to pass as the last
+// argument of a call, as for varargs, boxing by valueOf, and strings concatenated by
+// invokedynamic. A site inside a loop is marked as such, since that is where allocation adds
+// up; a branch back to an earlier instruction makes everything from there to the branch a loop.
+// Sites are found as methods are rendered, marked in their instruction tables, and at the end
+// of the run summed by input and by class in a page, and listed one by one in a CSV file.
+final class Allocations {
+  static final String PAGE = "allocations.html";
+  private static final String CSV = "allocations.csv";
+
+  private static final int OBJECT = 1;
+  private static final int ARRAY = 2;
+  private static final int VARARGS = 3;
+  private static final int BOXING = 4;
+  private static final int CONCAT = 5;
+  static final int LOOP = 8;
+  private static final String[] KINDS = {null, "new", "array", "varargs", "boxing", "concat"};
+
+  // primitive array types by newarray operand
+  private static final String[] PRIMITIVES = {
+    null, null, null, null, "boolean", "char", "float", "double", "byte", "short", "int", "long"
+  };
+
+  private static final Set<String> BOXES =
+      Set.of(
+          "java/lang/Boolean",
+          "java/lang/Byte",
+          "java/lang/Character",
+          "java/lang/Short",
+          "java/lang/Integer",
+          "java/lang/Long",
+          "java/lang/Float",
+          "java/lang/Double");
+
+  private record Site(
+      String className, String name, String desc, int offset, int line, int kind, String type) {}
+
+  private final Queue<Site> sites = new ConcurrentLinkedQueue<>();
+
+  // the input each class was read from, by class name
+  private static final Map<String, String> sources = new ConcurrentHashMap<>();
+
+  static void source(Path path, String className) {
+    sources.put(className, Inputs.source(path, className));
+  }
+
+  static String description(int site) {
+    var s = KINDS[site & ~LOOP];
+    return (site & LOOP) == 0 ? s : s + ", in a loop";
+  }
+
+  private static boolean boxing(MethodInsnNode a) {
+    return a.getOpcode() == INVOKESTATIC
+        && a.name.equals("valueOf")
+        && BOXES.contains(a.owner)
+        && Type.getArgumentTypes(a.desc).length == 1
+        && Type.getArgumentTypes(a.desc)[0].getSort() <= Type.DOUBLE;
+  }
+
+  // what is allocated, as a class name or array type
+  private static String type(AbstractInsnNode abstractInsnNode) {
+    return switch (abstractInsnNode) {
+      case TypeInsnNode a -> a.getOpcode() == NEW ? a.desc : a.desc + "[]";
+      case IntInsnNode a -> PRIMITIVES[a.operand] + "[]";
+      case MultiANewArrayInsnNode a -> a.desc;
+      case MethodInsnNode a -> a.owner;
+      default -> "java/lang/String";
+    };
+  }
+
+  // arrays whose only use is as the last argument of a call, as javac makes them for varargs;
+  // analysis is only worth running where a method both makes arrays and passes them
+  private static void varargs(String className, MethodNode methodNode, int[] ordinals, int[] v) {
+    var arrays = false;
+    var calls = false;
+    for (var abstractInsnNode : methodNode.instructions) {
+      var opcode = abstractInsnNode.getOpcode();
+      if (opcode == NEWARRAY || opcode == ANEWARRAY) arrays = true;
+      if (abstractInsnNode instanceof MethodInsnNode a && a.desc.contains("[")) calls = true;
+    }
+    if (!arrays || !calls) return;
+
+    Frame<SourceValue>[] frames;
+    try {
+      frames = new Analyzer<>(new SourceInterpreter()).analyze(className, methodNode);
+    } catch (AnalyzerException e) {
+      return;
+    }
+    var instructions = methodNode.instructions;
+    for (var i = 0; i < frames.length; i++) {
+      if (frames[i] == null || !(instructions.get(i) instanceof MethodInsnNode a)) continue;
+      var args = Type.getArgumentTypes(a.desc);
+      if (args.length == 0 || args[args.length - 1].getSort() != Type.ARRAY) continue;
+      var value = frames[i].getStack(frames[i].getStackSize() - 1);
+      if (value.insns.size() != 1) continue;
+      var source = value.insns.iterator().next();
+      var k = ordinals[instructions.indexOf(source)];
+      if ((v[k] & ~LOOP) == ARRAY) v[k] = v[k] & LOOP | VARARGS;
+    }
+  }
+
+  // the kind of allocation at each instruction by ordinal, with LOOP if in a loop; null if none
+  int[] add(String className, MethodNode methodNode, MethodIndex index) {
+    var n = index.size();
+    var v = new int[n];
+    var some = false;
+    for (var k = 0; k < n; k++) {
+      var abstractInsnNode = methodNode.instructions.get(index.indexes[k]);
+      v[k] =
+          switch (abstractInsnNode.getOpcode()) {
+            case NEW -> OBJECT;
+            case NEWARRAY, ANEWARRAY, MULTIANEWARRAY -> ARRAY;
+            case INVOKESTATIC -> boxing((MethodInsnNode) abstractInsnNode) ? BOXING : 0;
+            case INVOKEDYNAMIC -> ((InvokeDynamicInsnNode) abstractInsnNode)
+                    .bsm
+                    .getOwner()
+                    .equals("java/lang/invoke/StringConcatFactory")
+                ? CONCAT
+                : 0;
+            default -> 0;
+          };
+      if (v[k] != 0) some = true;
+    }
+    if (!some) return null;
+
+    // loops, as a count of the backward branches spanning each instruction
+    var loops = new int[n + 1];
+    for (var k = 0; k < n; k++)
+      for (var j = index.targetStart[k]; j < index.targetStart[k + 1]; j++) {
+        if (index.targets[j] < 0) continue;
+        var target = index.labelOrdinals[index.targets[j]];
+        if (target > k) continue;
+        loops[target]++;
+        loops[k + 1]--;
+      }
+    for (var k = 0; k < n; k++) {
+      if (k > 0) loops[k] += loops[k - 1];
+      if (v[k] != 0 && loops[k] > 0) v[k] |= LOOP;
+    }
+
+    var ordinals = new int[methodNode.instructions.size()];
+    for (var k = 0; k < n; k++) ordinals[index.indexes[k]] = k;
+    varargs(className, methodNode, ordinals, v);
+
+    if (!Main.report()) return v;
+    var offsets = HtmlPrinter.offsets(methodNode);
+    var line = -1;
+    for (var k = 0; k < n; k++) {
+      if (index.lines[k] >= 0) line = index.lines[k];
+      if (v[k] == 0) continue;
+      var abstractInsnNode = methodNode.instructions.get(index.indexes[k]);
+      sites.add(
+          new Site(
+              className,
+              methodNode.name,
+              methodNode.desc,
+              offsets == null ? -1 : offsets[k],
+              line,
+              v[k],
+              type(abstractInsnNode)));
+    }
+    return v;
+  }
+
+  private static void csv(StringBuilder sb, Object a) {
+    var s = String.valueOf(a);
+    if (s.indexOf(',') < 0 && s.indexOf('"') < 0) {
+      sb.append(s);
+      return;
+    }
+    sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+  }
+
+  // counts of each kind, then the total and those in loops
+  private static void row(StringBuilder sb, int[] counts) {
+    for (var kind = OBJECT; kind <= CONCAT; kind++)
+      sb.append("<td>").append(counts[kind]).append('\n');
+    sb.append("<td>").append(counts[0]).append('\n');
+    sb.append("<td>").append(counts[LOOP]).append('\n');
+  }
+
+  private static void count(Map<String, int[]> map, String key, int site) {
+    var counts = map.computeIfAbsent(key, k -> new int[LOOP + 1]);
+    counts[site & ~LOOP]++;
+    counts[0]++;
+    if ((site & LOOP) != 0) counts[LOOP]++;
+  }
+
+  private static void heading(StringBuilder sb, String first) {
+    sb.append("<table>\n");
+    sb.append("<tr>\n");
+    sb.append("<th>").append(first).append('\n');
+    for (var kind = OBJECT; kind <= CONCAT; kind++)
+      sb.append("<th>").append(KINDS[kind]).append('\n');
+    sb.append("<th>total\n");
+    sb.append("<th>in loops\n");
+  }
+
+  void write() throws IOException {
+    var v = new ArrayList<>(sites);
+    v.sort(
+        Comparator.comparing(Site::className)
+            .thenComparing(Site::name)
+            .thenComparing(Site::desc)
+            .thenComparingInt(Site::offset));
+
+    var sb = new StringBuilder();
+    sb.append("input,class,method,desc,offset,line,kind,type,loop\n");
+    var bySource = new TreeMap<String, int[]>();
+    var byClass = new TreeMap<String, int[]>();
+    for (var site : v) {
+      var source = sources.getOrDefault(site.className, "");
+      for (var a :
+          new Object[] {
+            source,
+            site.className,
+            site.name,
+            site.desc,
+            site.offset,
+            site.line,
+            KINDS[site.kind & ~LOOP],
+            site.type
+          }) {
+        csv(sb, a);
+        sb.append(',');
+      }
+      sb.append((site.kind & LOOP) != 0).append('\n');
+      count(bySource, source, site.kind);
+      count(byClass, site.className, site.kind);
+    }
+    Files.writeString(Path.of(CSV), sb, StandardCharsets.UTF_8);
+
+    sb.setLength(0);
+    sb.append(HtmlPrinter.reportHead("Allocations"));
+    sb.append("<p><a href=\"").append(CSV).append("\">Every site</a>\n");
+    sb.append("<h1>By input</h1>\n");
+    heading(sb, "Input");
+    for (var kv : bySource.entrySet()) {
+      sb.append("<tr>\n");
+      sb.append("<td>").append(StringEscapeUtils.escapeHtml4(kv.getKey())).append('\n');
+      row(sb, kv.getValue());
+    }
+    sb.append("</table>\n");
+    sb.append("<h1>By class</h1>\n");
+    heading(sb, "Class");
+    for (var kv : byClass.entrySet()) {
+      sb.append("<tr>\n");
+      sb.append("<td><a href=\"").append(HtmlPrinter.file(kv.getKey())).append("\">");
+      sb.append(kv.getKey()).append("</a>\n");
+      row(sb, kv.getValue());
+    }
+    sb.append("</table>\n");
+    sb.append(HtmlPrinter.SORTABLE);
+
+    Files.writeString(Path.of(PAGE), sb, StandardCharsets.UTF_8);
+    if (Main.gzip) {
+      Etc.gzip(PAGE);
+      Etc.gzip(CSV);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package jad;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.ClassReader;
+
+// Manifest of which class bytes each page was rendered from, so a page whose class has not
+// changed since the last run can be skipped without parsing. The hash also covers the program
+// version and options, since either can change the output for the same bytes, and the names of
+// the other input classes, since a page links to those that are there.
+final class Cache {
+  private final Path file;
+  private final byte[] salt;
+
+  // the input classes, and a hash of their names in order; none when streaming, which renders
+  // pages without links to other classes
+  private final Set<String> classNames = new TreeSet<>();
+  private byte[] classes = new byte[0];
+  private final Map<String, String> old = new HashMap<>();
+  private final Map<String, String> pages = new ConcurrentHashMap<>();
+
+  // method fragments and compressed copies already on disk, by page; class names have no dots,
+  // so a fragment's page is the part of its name before the first dot
+  private final Map<String, List<Path>> fragments = new HashMap<>();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  Cache(Path file, String salt) throws IOException {
+    this.file = file;
+    this.salt = salt.getBytes(StandardCharsets.UTF_8);
+    if (Files.exists(file))
+      for (var s : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        var v = s.split(" ", 2);
+        if (v.length == 2) old.put(v[1], v[0]);
+      }
+    if (old.isEmpty()) return;
+    try (var stream = Files.newDirectoryStream(Path.of("."), "*.*.html{,.gz}")) {
+      for (var path : stream) {
+        var s = path.getFileName().toString();
+        var page = s.substring(0, s.indexOf('.')) + ".html";
+        fragments.computeIfAbsent(page, k -> new ArrayList<>()).add(path);
+      }
+    }
+  }
+
+  // a page about to be rendered again may have fewer fragments than before, or none
+  private void deleteFragments(String page) {
+    var v = fragments.get(page);
+    if (v == null) return;
+    try {
+      for (var path : v) Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private String hash(byte[] bytes) {
+    var digest = digest();
+    digest.update(salt);
+    digest.update(classes);
+    return HexFormat.of().formatHex(digest.digest(bytes));
+  }
+
+  // classes that came into the input and went from it, before any of it is looked up
+  void classes(Collection<String> added, Collection<String> removed) {
+    var changed = classNames.addAll(added);
+    changed |= classNames.removeAll(removed);
+    if (!changed) return;
+    var digest = digest();
+    for (var s : classNames) {
+      digest.update(s.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+    }
+    classes = digest.digest();
+  }
+
+  // the class name comes from the constant pool, which is cheap to find without a full parse
+  boolean hit(byte[] bytes) {
+    var page = Main.printer.file(new ClassReader(bytes).getClassName());
+
+    // a format that writes one stream for the whole run has nothing to reuse
+    if (page == null) {
+      misses.incrementAndGet();
+      return false;
+    }
+
+    // a page that lists callers or calls that block can change when any other class does,
+    // and a report over the whole input needs every class rendered again, but the page is
+    // still recorded, so the next run does not take it for one whose class is gone
+    var hash = hash(bytes);
+    pages.put(page, hash);
+    var always = Main.xref || Main.alloc || Main.pinning;
+    if (!always && hash.equals(old.get(page)) && Files.exists(Path.of(page))) {
+      hits.incrementAndGet();
+      return true;
+    }
+    misses.incrementAndGet();
+    deleteFragments(page);
+    return false;
+  }
+
+  // a class deleted while watching
+  void remove(String page) {
+    pages.remove(page);
+  }
+
+  void write() throws IOException {
+    var sb = new StringBuilder();
+    for (var page : new TreeSet<>(pages.keySet()))
+      sb.append(pages.get(page)).append(' ').append(page).append('\n');
+    Files.writeString(file, sb, StandardCharsets.UTF_8);
+  }
+
+  void close() throws IOException {
+    // pages from earlier runs whose classes are no longer in the input, along with their
+    // method fragments and compressed copies
+    var pruned = 0;
+    for (var page : old.keySet())
+      if (!pages.containsKey(page)) {
+        if (Files.deleteIfExists(Path.of(page))) pruned++;
+        Files.deleteIfExists(Path.of(page + ".gz"));
+        deleteFragments(page);
+      }
+
+    write();
+    System.err.printf("cache: %d hits, %d misses, %d pruned\n", hits.get(), misses.get(), pruned);
+  }
+}
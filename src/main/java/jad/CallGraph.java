@@ -0,0 +1,235 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+// Which methods call which, over every class in the input. Each method named by a declaration
+// or a call is interned once as an int id; each class read adds its call sites as int triples,
+// and once all are in, they are gathered into compressed rows indexed by callee, so the graph
+// costs a few ints per call site however large the input. A call is recorded against the method
+// it names, which may be declared by a superclass rather than the class named. Each call site
+// keeps its offset, and each calling method its index in its class and number of instructions,
+// which together find the row of the call in the caller's instruction table.
+final class CallGraph {
+  record Method(int id, String owner, String name, String desc) {}
+
+  private static final Comparator<Method> ORDER =
+      Comparator.comparing(Method::owner).thenComparing(Method::name).thenComparing(Method::desc);
+
+  private final Map<String, Method> methods = new ConcurrentHashMap<>();
+  private final AtomicInteger next = new AtomicInteger();
+
+  // callee, caller, line and offset of each call site, a batch per class
+  private final Queue<int[]> batches = new ConcurrentLinkedQueue<>();
+
+  // id, index in its class and number of instructions of each method declared, a batch per class
+  private final Queue<int[]> declared = new ConcurrentLinkedQueue<>();
+
+  // after freezing, ids are renumbered in order of name, so the output does not depend on
+  // which thread interned a method first; the callers of method i are callers[start[i]] up
+  // to callers[start[i + 1]], sorted, with the line of each call, -1 if unknown, and its offset
+  private int[] renumber;
+  private Method[] byId;
+  private int[] start;
+  private int[] callers;
+  private int[] lines;
+  private int[] offsets;
+
+  // by id, of methods declared in the input
+  private int[] indexes;
+  private int[] sizes;
+
+  // the number of instructions in a method, and the offsets of those the visitor sees as method
+  // instructions; a visitor is not told offsets, so they are read from the code
+  private record Calls(int size, int[] offsets) {}
+
+  private static List<Calls> calls(ClassReader classReader) {
+    var v = new ArrayList<Calls>();
+    Code.methods(
+        classReader,
+        (name, desc, code) -> {
+          if (code < 0) {
+            v.add(new Calls(0, new int[0]));
+            return;
+          }
+          var length = classReader.readInt(code + 4);
+          var u = code + 8;
+          var offsets = new int[8];
+          var m = 0;
+          var n = 0;
+          for (var pc = 0; pc < length; pc += Code.size(classReader, u, pc)) {
+            n++;
+            var opcode = classReader.readByte(u + pc);
+            if (opcode < INVOKEVIRTUAL || INVOKEINTERFACE < opcode) continue;
+            if (m == offsets.length) offsets = Arrays.copyOf(offsets, m * 2);
+            offsets[m++] = pc;
+          }
+          v.add(new Calls(n, Arrays.copyOf(offsets, m)));
+        });
+    return v;
+  }
+
+  private Method intern(String owner, String name, String desc) {
+    return methods.computeIfAbsent(
+        owner + '.' + name + desc, k -> new Method(next.getAndIncrement(), owner, name, desc));
+  }
+
+  // collects the call sites of one class
+  private final class Sites extends ClassVisitor {
+    private final String className;
+    private final List<Calls> calls;
+    private int[] v = new int[64];
+    private int n;
+    private final int[] methods;
+    private int i;
+
+    Sites(String className, List<Calls> calls) {
+      super(ASM9);
+      this.className = className;
+      this.calls = calls;
+      methods = new int[calls.size() * 3];
+    }
+
+    private void add(int callee, int caller, int line, int offset) {
+      if (n + 4 > v.length) v = Arrays.copyOf(v, v.length * 2);
+      v[n++] = callee;
+      v[n++] = caller;
+      v[n++] = line;
+      v[n++] = offset;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        int access, String name, String descriptor, String signature, String[] exceptions) {
+      var caller = intern(className, name, descriptor).id;
+      var method = calls.get(i);
+      methods[i * 3] = caller;
+      methods[i * 3 + 1] = i;
+      methods[i * 3 + 2] = method.size;
+      i++;
+      return new MethodVisitor(ASM9) {
+        private int line = -1;
+        private int call;
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+          this.line = line;
+        }
+
+        @Override
+        public void visitMethodInsn(
+            int opcode, String owner, String name, String descriptor, boolean isInterface) {
+          add(intern(owner, name, descriptor).id, caller, line, method.offsets[call++]);
+        }
+      };
+    }
+  }
+
+  void add(ClassReader classReader) {
+    // once frozen, the graph stays as it is; calls in classes read later are not counted
+    if (renumber != null) return;
+    var sites = new Sites(classReader.getClassName(), calls(classReader));
+    classReader.accept(sites, ClassReader.SKIP_FRAMES);
+    if (sites.n > 0) batches.add(Arrays.copyOf(sites.v, sites.n));
+    declared.add(sites.methods);
+  }
+
+  void freeze() {
+    var size = next.get();
+    byId = methods.values().toArray(new Method[0]);
+    Arrays.sort(byId, ORDER);
+    renumber = new int[size];
+    for (var i = 0; i < size; i++) renumber[byId[i].id] = i;
+
+    indexes = new int[size];
+    sizes = new int[size];
+    for (var v : declared)
+      for (var j = 0; j < v.length; j += 3) {
+        indexes[renumber[v[j]]] = v[j + 1];
+        sizes[renumber[v[j]]] = v[j + 2];
+      }
+    declared.clear();
+
+    // count calls to each method, then place each call in its callee's row, caller, line and
+    // offset packed in a long so a row sorts as one array; line and offset are each two bytes
+    // in the class file, and the line is stored plus one, so that unknown is zero
+    start = new int[size + 1];
+    for (var v : batches) for (var j = 0; j < v.length; j += 4) start[renumber[v[j]] + 1]++;
+    for (var i = 0; i < size; i++) start[i + 1] += start[i];
+    var sites = new long[start[size]];
+    var fill = Arrays.copyOf(start, size);
+    for (var v : batches)
+      for (var j = 0; j < v.length; j += 4)
+        sites[fill[renumber[v[j]]]++] =
+            (long) renumber[v[j + 1]] << 33 | (long) (v[j + 2] + 1) << 16 | v[j + 3];
+    batches.clear();
+
+    // sort each row and keep the first call from each line
+    var k = 0;
+    for (var i = 0; i < size; i++) {
+      var from = start[i];
+      var to = start[i + 1];
+      Arrays.sort(sites, from, to);
+      start[i] = k;
+      for (var j = from; j < to; j++)
+        if (j == from || sites[j] >>> 16 != sites[j - 1] >>> 16) sites[k++] = sites[j];
+    }
+    start[size] = k;
+    callers = new int[k];
+    lines = new int[k];
+    offsets = new int[k];
+    for (var j = 0; j < k; j++) {
+      callers[j] = (int) (sites[j] >>> 33);
+      lines[j] = (int) (sites[j] >>> 16 & 0x1ffff) - 1;
+      offsets[j] = (int) sites[j] & 0xffff;
+    }
+  }
+
+  // id of a method, or -1 if nothing in the input declares or calls it
+  int id(String owner, String name, String desc) {
+    var method = methods.get(owner + '.' + name + desc);
+    return method == null ? -1 : renumber[method.id];
+  }
+
+  int start(int id) {
+    return start[id];
+  }
+
+  int end(int id) {
+    return start[id + 1];
+  }
+
+  Method caller(int j) {
+    return byId[callers[j]];
+  }
+
+  int line(int j) {
+    return lines[j];
+  }
+
+  int offset(int j) {
+    return offsets[j];
+  }
+
+  // the index of the calling method in its class, and its number of instructions
+  int method(int j) {
+    return indexes[callers[j]];
+  }
+
+  int size(int j) {
+    return sizes[callers[j]];
+  }
+}
@@ -0,0 +1,200 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+// Where each instruction is in a method's code, read from the Code attributes of the class file.
+// The tree API keeps the instructions but not their encoding, which may be longer or shorter
+// (ldc or ldc_w, iload_0 or iload 0), so sizes are only exact from the bytes themselves. Sizes
+// are what HotSpot's limits on inlining and compiling are measured against.
+final class Code {
+  // HotSpot's defaults: methods over MaxInlineSize are inlined only at hot call sites, methods
+  // over FreqInlineSize not even there, and methods over HugeMethodLimit are never compiled
+  static final int MAX_INLINE_SIZE = 35;
+  static final int FREQ_INLINE_SIZE = 325;
+  static final int HUGE_METHOD_LIMIT = 8000;
+
+  // offsets of the instructions in order, then the length of the code; null for no code
+  record Method(String name, String desc, int[] offsets) {}
+
+  // a method node that also knows where its instructions were
+  static final class Node extends MethodNode {
+    int[] offsets;
+
+    Node(int access, String name, String desc, String signature, String[] exceptions) {
+      super(ASM9, access, name, desc, signature, exceptions);
+    }
+  }
+
+  interface Visitor {
+    // code is where max_stack is in the Code attribute, followed by max_locals, code_length
+    // and the code itself; -1 for no code
+    void visit(String name, String desc, int code);
+  }
+
+  private Code() {}
+
+  static String limit(int length) {
+    if (length > HUGE_METHOD_LIMIT) return "over HugeMethodLimit, not compiled";
+    if (length > FREQ_INLINE_SIZE) return "over FreqInlineSize, not inlined";
+    if (length > MAX_INLINE_SIZE) return "over MaxInlineSize, inlined only where hot";
+    return null;
+  }
+
+  // the class file, with a Node for each method, which is given its offsets
+  static ClassNode parse(ClassReader classReader, int flags) {
+    var classNode =
+        new ClassNode(ASM9) {
+          @Override
+          public MethodVisitor visitMethod(
+              int access, String name, String desc, String signature, String[] exceptions) {
+            var node = new Node(access, name, desc, signature, exceptions);
+            methods.add(node);
+            return node;
+          }
+        };
+    classReader.accept(classNode, flags);
+    var methods = methods(classReader);
+    for (var i = 0; i < methods.size(); i++)
+      ((Node) classNode.methods.get(i)).offsets = methods.get(i).offsets;
+    return classNode;
+  }
+
+  private static int skipAttributes(ClassReader classReader, int u) {
+    var n = classReader.readUnsignedShort(u);
+    u += 2;
+    for (var i = 0; i < n; i++) u += 6 + classReader.readInt(u + 2);
+    return u;
+  }
+
+  static List<Method> methods(ClassReader classReader) {
+    var methods = new ArrayList<Method>();
+    methods(
+        classReader,
+        (name, desc, code) -> {
+          var offsets =
+              code < 0 ? null : offsets(classReader, code + 8, classReader.readInt(code + 4));
+          methods.add(new Method(name, desc, offsets));
+        });
+    return methods;
+  }
+
+  // each method in order
+  static void methods(ClassReader classReader, Visitor visitor) {
+    var chars = new char[classReader.getMaxStringLength()];
+
+    // access, this class, superclass, interfaces
+    var u = classReader.header + 6;
+    u += 2 + 2 * classReader.readUnsignedShort(u);
+
+    // fields
+    var n = classReader.readUnsignedShort(u);
+    u += 2;
+    for (var i = 0; i < n; i++) u = skipAttributes(classReader, u + 6);
+
+    // methods
+    n = classReader.readUnsignedShort(u);
+    u += 2;
+    for (var i = 0; i < n; i++) {
+      var name = classReader.readUTF8(u + 2, chars);
+      var desc = classReader.readUTF8(u + 4, chars);
+      var code = -1;
+      var attributes = classReader.readUnsignedShort(u + 6);
+      u += 8;
+      for (var j = 0; j < attributes; j++) {
+        if (classReader.readUTF8(u, chars).equals("Code")) code = u + 6;
+        u += 6 + classReader.readInt(u + 2);
+      }
+      visitor.visit(name, desc, code);
+    }
+  }
+
+  // code starts at u and is length bytes long
+  private static int[] offsets(ClassReader classReader, int u, int length) {
+    var offsets = new int[Math.min(length, 64) + 1];
+    var n = 0;
+    for (var pc = 0; pc < length; ) {
+      if (n + 1 == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      offsets[n++] = pc;
+      pc += size(classReader, u, pc);
+    }
+    offsets[n] = length;
+    return Arrays.copyOf(offsets, n + 1);
+  }
+
+  // opcodes the tree API has no constants for, since it reads them as other instructions
+  private static final int LDC_W = 0x13;
+  private static final int LDC2_W = 0x14;
+  private static final int WIDE = 0xc4;
+  private static final int GOTO_W = 0xc8;
+  private static final int JSR_W = 0xc9;
+
+  // bytes taken by each instruction with its operands, 0 where that depends on the operands
+  private static final byte[] SIZES = new byte[256];
+
+  static {
+    Arrays.fill(SIZES, (byte) 1);
+    SIZES[BIPUSH] = SIZES[LDC] = SIZES[RET] = SIZES[NEWARRAY] = 2;
+    for (var i = ILOAD; i <= ALOAD; i++) SIZES[i] = 2;
+    for (var i = ISTORE; i <= ASTORE; i++) SIZES[i] = 2;
+    SIZES[SIPUSH] = SIZES[LDC_W] = SIZES[LDC2_W] = SIZES[IINC] = 3;
+    for (var i = IFEQ; i <= JSR; i++) SIZES[i] = 3;
+    for (var i = GETSTATIC; i <= INVOKESTATIC; i++) SIZES[i] = 3;
+    SIZES[NEW] = SIZES[ANEWARRAY] = SIZES[CHECKCAST] = SIZES[INSTANCEOF] = 3;
+    SIZES[IFNULL] = SIZES[IFNONNULL] = 3;
+    SIZES[MULTIANEWARRAY] = 4;
+    SIZES[INVOKEINTERFACE] = SIZES[INVOKEDYNAMIC] = SIZES[GOTO_W] = SIZES[JSR_W] = 5;
+    SIZES[WIDE] = SIZES[TABLESWITCH] = SIZES[LOOKUPSWITCH] = 0;
+  }
+
+  private static final int[] NONE = new int[0];
+
+  // offsets the instruction at pc may branch to, for a switch its default first
+  static int[] targets(ClassReader classReader, int u, int pc) {
+    var opcode = classReader.readByte(u + pc);
+    if (IFEQ <= opcode && opcode <= JSR || opcode == IFNULL || opcode == IFNONNULL)
+      return new int[] {pc + classReader.readShort(u + pc + 1)};
+    if (opcode == GOTO_W || opcode == JSR_W)
+      return new int[] {pc + classReader.readInt(u + pc + 1)};
+    if (opcode != TABLESWITCH && opcode != LOOKUPSWITCH) return NONE;
+
+    // the default, then the bounds or number of pairs, then the offsets, or keys and offsets
+    var v = u + pc + 4 - (pc & 3);
+    var table = opcode == TABLESWITCH;
+    var n =
+        table
+            ? classReader.readInt(v + 8) - classReader.readInt(v + 4) + 1
+            : classReader.readInt(v + 4);
+    var targets = new int[n + 1];
+    targets[0] = pc + classReader.readInt(v);
+    for (var i = 0; i < n; i++)
+      targets[i + 1] = pc + classReader.readInt(v + 12 + (table ? 4 : 8) * i);
+    return targets;
+  }
+
+  // a switch is padded so its operands start at a multiple of four from the start of the code
+  static int size(ClassReader classReader, int u, int pc) {
+    var opcode = classReader.readByte(u + pc);
+    if (SIZES[opcode] != 0) return SIZES[opcode];
+
+    // the opcode and padding, then the operands
+    var n = 4 - (pc & 3);
+    var v = u + pc + n;
+    return switch (opcode) {
+      case WIDE -> classReader.readByte(u + pc + 1) == IINC ? 6 : 4;
+      case TABLESWITCH -> {
+        var low = classReader.readInt(v + 4);
+        var high = classReader.readInt(v + 8);
+        yield n + 12 + 4 * (high - low + 1);
+      }
+      default -> n + 8 + 8 * classReader.readInt(v + 4);
+    };
+  }
+}
@@ -1,6 +1,15 @@
 package jad;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.text.StringEscapeUtils;
 
 public final class Etc {
@@ -226,6 +235,60 @@ public final class Etc {
     };
   }
 
+  // a JSON string; unlike escapeJson, leaves '/' alone
+  static void json(StringBuilder sb, String s) {
+    sb.append('"');
+    for (var i = 0; i < s.length(); i++) {
+      var c = s.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> {
+          if (c < ' ') sb.append(String.format("\\u%04x", (int) c));
+          else sb.append(c);
+        }
+      }
+    }
+    sb.append('"');
+  }
+
+  private static ForkJoinPool pool;
+
+  static synchronized ForkJoinPool pool() {
+    if (pool == null) pool = new ForkJoinPool(Main.threads);
+    return pool;
+  }
+
+  static <T> void parallel(Collection<T> v, Consumer<T> f) {
+    if (Main.threads == 1) {
+      for (var a : v) f.accept(a);
+      return;
+    }
+    pool().submit(() -> v.parallelStream().forEach(f)).join();
+  }
+
+  // like parallel, but collects the results in the order of the inputs
+  static <T, R> List<R> map(Collection<T> v, Function<T, R> f) {
+    if (Main.threads == 1) return v.stream().map(f).toList();
+    return pool().submit(() -> v.parallelStream().map(f).toList()).join();
+  }
+
+  // a copy of the file beside it for web servers that send precompressed files as they are;
+  // compressed once and sent many times, so worth the best compression
+  static void gzip(String file) throws IOException {
+    try (var out =
+        new GZIPOutputStream(Files.newOutputStream(Path.of(file + ".gz")), 1 << 16) {
+          {
+            def.setLevel(Deflater.BEST_COMPRESSION);
+          }
+        }) {
+      Files.copy(Path.of(file), out);
+    }
+  }
+
   static String ext(String file) {
     var i = file.lastIndexOf('.');
     if (i < 0) return "";
@@ -0,0 +1,196 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.*;
+
+// The types of the locals and the stack before each instruction, inferred by ASM's analyzer.
+// Analysis costs far more than printing, so each method is analyzed as a task of its own,
+// all of a class's methods are started before the first is printed, methods over a budget
+// are not analyzed at all, and results are kept by a hash of the code, so a method is not
+// analyzed again when its class is rendered again unchanged.
+final class Frames {
+  // instructions of analyzed methods kept in the cache, before it is emptied and starts over
+  private static final long CACHE = 1 << 20;
+
+  private record Key(String className, String name, String desc, long hash) {}
+
+  private static final Map<Key, Frames> cache = new ConcurrentHashMap<>();
+  private static final AtomicLong cached = new AtomicLong();
+
+  // SimpleVerifier finds the common superclass of two types by loading them, which would find
+  // whatever version of a class is on jad's own class path, or fail if there is none. Instead,
+  // any two reference types are compatible, and different ones merge to Object, except that
+  // the class being analyzed is known to extend its superclass. Everything that would load a
+  // class is overridden; should a later ASM load one some other way, it gets a loader that sees
+  // only the JDK, and a class it cannot find fails the analysis, not the page.
+  private static final ClassLoader JDK = new ClassLoader(null) {};
+
+  private static final class Verifier extends SimpleVerifier {
+    private static final Type OBJECT = Type.getObjectType("java/lang/Object");
+    private final Type currentClass;
+    private final Type currentSuperClass;
+
+    Verifier(Type currentClass, Type currentSuperClass) {
+      super(ASM9, currentClass, currentSuperClass, List.of(), false);
+      setClassLoader(JDK);
+      this.currentClass = currentClass;
+      this.currentSuperClass = currentSuperClass;
+    }
+
+    private static boolean isReference(Type type) {
+      return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY;
+    }
+
+    @Override
+    protected boolean isSubTypeOf(BasicValue value, BasicValue expected) {
+      if (isReference(expected.getType()))
+        return value.getType() != null && isReference(value.getType());
+      return super.isSubTypeOf(value, expected);
+    }
+
+    @Override
+    protected boolean isInterface(Type type) {
+      return false;
+    }
+
+    @Override
+    protected Type getSuperClass(Type type) {
+      if (type.equals(OBJECT)) return null;
+      if (type.equals(currentClass)) return currentSuperClass;
+      return OBJECT;
+    }
+
+    @Override
+    protected boolean isAssignableFrom(Type type1, Type type2) {
+      return type1.equals(type2)
+          || type1.equals(OBJECT)
+          || type1.equals(currentSuperClass) && type2.equals(currentClass);
+    }
+  }
+
+  // code and everything the analysis depends on; labels count by position
+  private static long hash(ClassNode classNode, MethodNode methodNode) {
+    var instructions = methodNode.instructions;
+    var h = 0xcbf29ce484222325L;
+    h = (h ^ methodNode.access) * 0x100000001b3L;
+    h = (h ^ String.valueOf(classNode.superName).hashCode()) * 0x100000001b3L;
+    for (var abstractInsnNode : instructions) {
+      long x =
+          switch (abstractInsnNode) {
+            case IntInsnNode a -> a.operand;
+            case VarInsnNode a -> a.var;
+            case TypeInsnNode a -> a.desc.hashCode();
+            case FieldInsnNode a -> (a.owner + '.' + a.name + a.desc).hashCode();
+            case MethodInsnNode a -> (a.owner + '.' + a.name + a.desc).hashCode();
+            case JumpInsnNode a -> instructions.indexOf(a.label);
+            case LdcInsnNode a -> a.cst.hashCode();
+            case IincInsnNode a -> (long) a.var << 32 | a.incr & 0xffffffffL;
+            case TableSwitchInsnNode a -> a.min ^ (long) a.max << 32;
+            case LookupSwitchInsnNode a -> a.keys.hashCode();
+            case InvokeDynamicInsnNode a -> (a.name + a.desc).hashCode();
+            case MultiANewArrayInsnNode a -> (a.desc + a.dims).hashCode();
+            default -> 0;
+          };
+      h = (h ^ abstractInsnNode.getOpcode()) * 0x100000001b3L;
+      h = (h ^ x) * 0x100000001b3L;
+      if (abstractInsnNode instanceof TableSwitchInsnNode a)
+        for (var label : a.labels) h = (h ^ instructions.indexOf(label)) * 0x100000001b3L;
+      if (abstractInsnNode instanceof LookupSwitchInsnNode a)
+        for (var label : a.labels) h = (h ^ instructions.indexOf(label)) * 0x100000001b3L;
+    }
+    for (var tryCatchBlockNode : methodNode.tryCatchBlocks) {
+      h = (h ^ instructions.indexOf(tryCatchBlockNode.start)) * 0x100000001b3L;
+      h = (h ^ instructions.indexOf(tryCatchBlockNode.end)) * 0x100000001b3L;
+      h = (h ^ instructions.indexOf(tryCatchBlockNode.handler)) * 0x100000001b3L;
+      h = (h ^ String.valueOf(tryCatchBlockNode.type).hashCode()) * 0x100000001b3L;
+    }
+    h = (h ^ methodNode.maxLocals) * 0x100000001b3L;
+    return (h ^ methodNode.maxStack) * 0x100000001b3L;
+  }
+
+  // the types before each instruction, by position in the instruction list; null for
+  // unreachable code. Locals seldom change from one instruction to the next, so where they do
+  // not, they are the same string.
+  final String[] locals;
+  final String[] stack;
+
+  private Frames(String[] locals, String[] stack) {
+    this.locals = locals;
+    this.stack = stack;
+  }
+
+  private static String locals(Frame<BasicValue> frame) {
+    var sb = new StringBuilder();
+    var n = frame.getLocals();
+    while (n > 0 && frame.getLocal(n - 1) == BasicValue.UNINITIALIZED_VALUE) n--;
+    for (var i = 0; i < n; i++) {
+      if (i > 0) sb.append(' ');
+      sb.append(frame.getLocal(i));
+    }
+    return sb.toString();
+  }
+
+  private static String stack(Frame<BasicValue> frame) {
+    var sb = new StringBuilder();
+    for (var i = 0; i < frame.getStackSize(); i++) {
+      if (i > 0) sb.append(' ');
+      sb.append(frame.getStack(i));
+    }
+    return sb.toString();
+  }
+
+  // null if the code does not pass analysis, or it needs a class that cannot be loaded
+  private static Frames analyze(ClassNode classNode, MethodNode methodNode) {
+    var key =
+        new Key(classNode.name, methodNode.name, methodNode.desc, hash(classNode, methodNode));
+    var v = cache.get(key);
+    if (v != null) return v;
+
+    var superName = classNode.superName == null ? "java/lang/Object" : classNode.superName;
+    var verifier = new Verifier(Type.getObjectType(classNode.name), Type.getObjectType(superName));
+    Frame<BasicValue>[] frames;
+    try {
+      frames = new Analyzer<>(verifier).analyze(classNode.name, methodNode);
+    } catch (AnalyzerException | RuntimeException e) {
+      return null;
+    }
+    v = new Frames(new String[frames.length], new String[frames.length]);
+    String last = null;
+    for (var i = 0; i < frames.length; i++) {
+      if (frames[i] == null) continue;
+      var locals = locals(frames[i]);
+      if (!locals.equals(last)) last = locals;
+      v.locals[i] = last;
+      v.stack[i] = stack(frames[i]);
+    }
+
+    if (cached.addAndGet(frames.length) > CACHE) {
+      cache.clear();
+      cached.set(frames.length);
+    }
+    cache.put(key, v);
+    return v;
+  }
+
+  // starts analyzing the methods of a class; for each, what to call for the frames when it is
+  // printed, or null if it has no code or is over the budget
+  static List<Supplier<Frames>> start(ClassNode classNode) {
+    var v = new ArrayList<Supplier<Frames>>();
+    for (var methodNode : classNode.methods) {
+      var n = methodNode.instructions.size();
+      if (n == 0 || n > Main.frames) v.add(null);
+      else if (Main.threads == 1) v.add(() -> analyze(classNode, methodNode));
+      else v.add(Etc.pool().submit(() -> analyze(classNode, methodNode))::join);
+    }
+    return v;
+  }
+}
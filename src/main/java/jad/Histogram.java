@@ -0,0 +1,181 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.objectweb.asm.ClassReader;
+
+// The shape of the bytecode across the whole input, for -histogram: how often each opcode
+// occurs as encoded, so iload_0 and ldc_w count as themselves, how big methods are, how deep
+// their stacks and how many their locals, and what kinds of call they make. Counting walks the
+// raw Code attributes without parsing anything, each thread into counters of its own that are
+// only added up at the end, and is written as text meant to be compared between runs.
+final class Histogram {
+  static final String FILE = "histogram.txt";
+
+  // the constant pool tag of a method of an interface
+  private static final int INTERFACE_METHODREF = 11;
+
+  // kinds of call
+  private static final String[] INVOKES = {
+    "invokevirtual",
+    "invokespecial",
+    "invokespecial of an interface method",
+    "invokestatic",
+    "invokestatic of an interface method",
+    "invokeinterface",
+    "invokedynamic",
+  };
+
+  // where max stack and locals are this or more, they are counted as this
+  private static final int MAX = 255;
+
+  private static final class Counts {
+    // indexed like Etc.mnemonics
+    final long[] opcodes = new long[256];
+
+    // methods by instructions, in powers of two: 0, 1, 2-3, 4-7 and so on
+    final long[] instructions = new long[32];
+
+    final long[] maxStack = new long[MAX + 1];
+    final long[] maxLocals = new long[MAX + 1];
+    final long[] invokes = new long[INVOKES.length];
+    long classes;
+    long methods;
+    long code;
+    long bytes;
+  }
+
+  private static final Queue<Counts> rows = new ConcurrentLinkedQueue<>();
+  private static final ThreadLocal<Counts> row =
+      ThreadLocal.withInitial(
+          () -> {
+            var v = new Counts();
+            rows.add(v);
+            return v;
+          });
+
+  private Histogram() {}
+
+  private static boolean isInterface(ClassReader classReader, int u) {
+    var item = classReader.getItem(classReader.readUnsignedShort(u));
+    return classReader.readByte(item - 1) == INTERFACE_METHODREF;
+  }
+
+  static void add(ClassReader classReader) {
+    var v = row.get();
+    v.classes++;
+    Code.methods(
+        classReader,
+        (name, desc, code) -> {
+          v.methods++;
+          if (code < 0) return;
+          v.code++;
+          v.maxStack[Math.min(classReader.readUnsignedShort(code), MAX)]++;
+          v.maxLocals[Math.min(classReader.readUnsignedShort(code + 2), MAX)]++;
+          var length = classReader.readInt(code + 4);
+          var u = code + 8;
+          v.bytes += length;
+
+          var n = 0;
+          for (var pc = 0; pc < length; pc += Code.size(classReader, u, pc)) {
+            var opcode = classReader.readByte(u + pc);
+            v.opcodes[opcode]++;
+            n++;
+            var invoke =
+                switch (opcode) {
+                  case INVOKEVIRTUAL -> 0;
+                  case INVOKESPECIAL -> isInterface(classReader, u + pc + 1) ? 2 : 1;
+                  case INVOKESTATIC -> isInterface(classReader, u + pc + 1) ? 4 : 3;
+                  case INVOKEINTERFACE -> 5;
+                  case INVOKEDYNAMIC -> 6;
+                  default -> -1;
+                };
+            if (invoke >= 0) v.invokes[invoke]++;
+          }
+          v.instructions[32 - Integer.numberOfLeadingZeros(n)]++;
+        });
+  }
+
+  // counts only need the bytes, so nothing is parsed or rendered
+  static void count(List<Path> paths) throws IOException {
+    Etc.parallel(
+        paths,
+        path -> {
+          try {
+            Stats.start(Stats.Phase.READ);
+            var bytes = Files.readAllBytes(path);
+            Stats.end(Stats.Phase.READ, bytes.length);
+            add(new ClassReader(bytes));
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+    write();
+  }
+
+  private static void print(PrintWriter writer, long n, long total, String name) {
+    if (n == 0) return;
+    writer.printf(Locale.ROOT, "%12d %7.3f%%  %s\n", n, n * 100.0 / Math.max(total, 1), name);
+  }
+
+  private static void write() throws IOException {
+    var total = new Counts();
+    for (var v : rows) {
+      for (var i = 0; i < 256; i++) total.opcodes[i] += v.opcodes[i];
+      for (var i = 0; i < total.instructions.length; i++)
+        total.instructions[i] += v.instructions[i];
+      for (var i = 0; i <= MAX; i++) {
+        total.maxStack[i] += v.maxStack[i];
+        total.maxLocals[i] += v.maxLocals[i];
+      }
+      for (var i = 0; i < INVOKES.length; i++) total.invokes[i] += v.invokes[i];
+      total.classes += v.classes;
+      total.methods += v.methods;
+      total.code += v.code;
+      total.bytes += v.bytes;
+    }
+    var instructions = 0L;
+    for (var n : total.opcodes) instructions += n;
+    var invokes = 0L;
+    for (var n : total.invokes) invokes += n;
+
+    try (var writer = new PrintWriter(Files.newBufferedWriter(Path.of(FILE)))) {
+      writer.printf(Locale.ROOT, "%12d  classes\n", total.classes);
+      writer.printf(Locale.ROOT, "%12d  methods\n", total.methods);
+      writer.printf(Locale.ROOT, "%12d  methods with code\n", total.code);
+      writer.printf(Locale.ROOT, "%12d  bytes of code\n", total.bytes);
+      writer.printf(Locale.ROOT, "%12d  instructions\n", instructions);
+
+      writer.printf("\nopcodes\n");
+      for (var i = 0; i < Etc.mnemonics.length; i++)
+        print(writer, total.opcodes[i], instructions, Etc.mnemonics[i]);
+
+      writer.printf("\ninvokes\n");
+      for (var i = 0; i < INVOKES.length; i++) print(writer, total.invokes[i], invokes, INVOKES[i]);
+
+      // percentages of methods with code from here on
+      writer.printf("\ninstructions per method\n");
+      for (var i = 0; i < total.instructions.length; i++) {
+        var low = i == 0 ? 0 : 1 << i - 1;
+        var high = (1 << i) - 1;
+        print(writer, total.instructions[i], total.code, low == high ? "" + low : low + "-" + high);
+      }
+
+      writer.printf("\nmax stack\n");
+      for (var i = 0; i <= MAX; i++)
+        print(writer, total.maxStack[i], total.code, i == MAX ? MAX + "+" : "" + i);
+
+      writer.printf("\nmax locals\n");
+      for (var i = 0; i <= MAX; i++)
+        print(writer, total.maxLocals[i], total.code, i == MAX ? MAX + "+" : "" + i);
+    }
+  }
+}
@@ -2,22 +2,138 @@ package jad;
 
 import static org.objectweb.asm.Opcodes.*;
 
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.apache.commons.text.StringEscapeUtils;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
 
 public final class HtmlPrinter {
-  private Set<String> classNames = new HashSet<>();
-  private PrintWriter writer;
+  // text written for every instruction or table row, encoded once
+  private static final byte[] TR = Utf8Writer.bytes("<tr>\n");
+  private static final byte[] TD = Utf8Writer.bytes("<td>");
+  private static final byte[] TD_PERCENT = Utf8Writer.bytes("<td>%");
+  private static final byte[] BORDERED = Utf8Writer.bytes("<td class=\"bordered\">");
+  private static final byte[][] MNEMONICS = new byte[Etc.mnemonics.length][];
+
+  static {
+    for (var i = 0; i < MNEMONICS.length; i++) MNEMONICS[i] = Utf8Writer.bytes(Etc.mnemonics[i]);
+  }
+
+  static final String STYLE =
+      """
+      html * {
+      font-family: "Verdana";
+      }
+      table.bordered, th.bordered, td.bordered {
+      border: 1px solid;
+      border-collapse: collapse;
+      }
+      th, td {
+      padding-left: 4px;
+      padding-right: 4px;
+      }
+      """;
+
+  // rows of instructions that allocate, for -alloc; darker in loops
+  private static final String ALLOC_STYLE =
+      """
+      tr.alloc {
+      background-color: #fff3d6;
+      }
+      tr.loop {
+      background-color: #ffd98a;
+      }
+      """;
+
+  // rows of calls that may block while holding a monitor, for -pinning
+  private static final String PIN_STYLE =
+      """
+      tr.pin {
+      background-color: #f8c8c8;
+      }
+      """;
+
+  // in site mode, the style is written once to this file instead of into every page
+  static final String STYLESHEET = "jad.css";
+
+  // the start of a report page of tables, before its body and SORTABLE
+  static String reportHead(String title) {
+    return """
+        <!DOCTYPE html>
+        <html lang="en">
+        <meta charset="utf-8"/>
+        <title>%s</title>
+        <style>
+        html * {
+        font-family: "Verdana";
+        }
+        th {
+        cursor: pointer;
+        text-align: left;
+        }
+        td {
+        padding-left: 4px;
+        padding-right: 4px;
+        }
+        </style>
+        """
+        .formatted(title);
+  }
+
+  // a script for a page of tables, sorting on a column when its heading is clicked,
+  // the other way when clicked again
+  static final String SORTABLE =
+      """
+      <script>
+      for (let table of document.querySelectorAll("table")) {
+        let last = -1, order = 1;
+        let sort = function (j) {
+          order = j == last ? -order : 1;
+          last = j;
+          let rows = Array.from(table.rows).slice(1);
+          rows.sort(function (a, b) {
+            let x = a.cells[j].textContent, y = b.cells[j].textContent;
+            return (isNaN(x) || isNaN(y) ? x.localeCompare(y) : x - y) * order;
+          });
+          for (let row of rows) table.tBodies[0].appendChild(row);
+        };
+        for (let j = 0; j < table.rows[0].cells.length; j++)
+          table.rows[0].cells[j].onclick = sort.bind(null, j);
+      }
+      </script>
+      """;
+
+  // indexes over the whole input, shared by all pages
+  private final Format format;
+  final Utf8Writer writer;
+
+  // a fragment is shown in a frame, so links to other pages must replace the whole window
+  private final String target;
+
+  // the class being printed; references to its own members are left as they are
+  private String className;
+
+  // visible for RenderBench
+  HtmlPrinter(Format format, Utf8Writer writer, String target) {
+    this.format = format;
+    this.writer = writer;
+    this.target = target;
+  }
 
   private void linkId(String id) {
     linkId(id, id);
   }
 
-  private void linkId(String id, String label) {
+  void linkId(String id, String label) {
     if (label == null) {
       writer.print("null");
       return;
@@ -37,7 +153,7 @@ public final class HtmlPrinter {
     markId(tag, id, id);
   }
 
-  private void markId(String tag, String id, String label) {
+  void markId(String tag, String id, String label) {
     writer.print('<');
     writer.print(tag);
     writer.print(' ');
@@ -52,7 +168,160 @@ public final class HtmlPrinter {
     writer.print('>');
   }
 
-  private void print(MethodNode methodNode) {
+  // same as linkId(name + "_L" + label, "L" + label) without building the strings
+  void linkLabel(String name, int label) {
+    if (label < 0) {
+      writer.print("null");
+      return;
+    }
+    writer.print("<a href=\"#");
+    writer.print(name);
+    writer.print("_L");
+    writer.print(label);
+    writer.print("\">L");
+    writer.print(label);
+    writer.print("</a>");
+  }
+
+  void markLabel(String name, int label) {
+    writer.print("<span id=\"");
+    writer.print(name);
+    writer.print("_L");
+    writer.print(label);
+    writer.print("\">L");
+    writer.print(label);
+    writer.print("</span>");
+  }
+
+  private void link(Symbols.Entry entry, String anchor, String label) {
+    writer.print("<a href=\"");
+    writer.print(entry.page());
+    if (anchor != null) {
+      writer.print('#');
+      writer.print(anchor);
+    }
+    writer.print('"');
+    writer.print(target);
+    writer.print('>');
+    writer.print(label);
+    writer.print("</a>");
+  }
+
+  // a class name, linked to its page if it is another of the inputs
+  void linkClass(String className) {
+    var entry = className.equals(this.className) ? null : format.symbols.get(className);
+    if (entry == null) writer.print(className);
+    else link(entry, null, className);
+  }
+
+  // owner.name desc, with the owner linked to its page, and the name to the member's heading
+  // if the owner declares it; a member inherited from elsewhere is not followed up
+  void member(String owner, String name, String desc) {
+    var entry = owner.equals(className) ? null : format.symbols.get(owner);
+    if (entry == null) {
+      writer.print(owner);
+      writer.print('.');
+      writer.print(StringEscapeUtils.escapeHtml4(name));
+    } else {
+      link(entry, null, owner);
+      writer.print('.');
+      var s = StringEscapeUtils.escapeHtml4(name);
+      if (entry.declares(name, desc)) link(entry, s, s);
+      else writer.print(s);
+    }
+    writer.print(' ');
+    writer.print(desc);
+  }
+
+  // call sites of a method, linked to the row of the call, with the line of the call
+  private void callers(MethodNode methodNode) {
+    var graph = format.graph;
+    var id = graph.id(className, methodNode.name, methodNode.desc);
+    if (id < 0 || graph.start(id) == graph.end(id)) return;
+    writer.print("Called from\n");
+    writer.print("<ul>\n");
+    for (var j = graph.start(id); j < graph.end(id); j++) {
+      var caller = graph.caller(j);
+      var s = StringEscapeUtils.escapeHtml4(caller.name());
+      writer.print("<li><a href=\"");
+      writer.print(page(caller.owner(), graph.method(j), graph.size(j)));
+      writer.print('#');
+      writer.print(id(s, graph.method(j), graph.offset(j)));
+      writer.print('"');
+      writer.print(target);
+      writer.print('>');
+      writer.print(caller.owner());
+      writer.print('.');
+      writer.print(s);
+      writer.print("</a> ");
+      writer.print(caller.desc());
+      if (graph.line(j) >= 0) {
+        writer.print(", line ");
+        writer.print(graph.line(j));
+      }
+      writer.print('\n');
+    }
+    writer.print("</ul>\n");
+  }
+
+  private void switchTargets(String name, MethodIndex index, int k) {
+    for (var j = index.targetStart[k]; j < index.targetStart[k + 1]; j++) {
+      if (j > index.targetStart[k]) writer.print(' ');
+      linkLabel(name, index.targets[j]);
+    }
+  }
+
+  // visible for RenderBench, which renders one method on its own
+  void print(MethodNode methodNode, String fragment) throws IOException {
+    print(methodNode, fragment, 0, (Supplier<Frames>) null);
+  }
+
+  // method is the index of the method in its class, which tells overloads apart in row ids
+  private void print(MethodNode methodNode, String fragment, int method, Supplier<Frames> frames)
+      throws IOException {
+    var index = new MethodIndex(methodNode);
+    var sites = Main.alloc ? format.allocations.add(className, methodNode, index) : null;
+    var risks = Main.pinning ? risks(methodNode, fragment, method, index) : null;
+    print(
+        methodNode,
+        fragment,
+        index.size(),
+        printer ->
+            printer.instructions(
+                methodNode, method, index, frames == null ? null : frames.get(), sites, risks));
+  }
+
+  // the page the instruction table is on is only needed for links from the pinning report,
+  // and a method rendered on its own, as by RenderBench, has none
+  private String[] risks(MethodNode methodNode, String fragment, int method, MethodIndex index) {
+    var page = Main.page == 0 || index.size() <= Main.page ? file(className) : fragment;
+    return format.pinning.find(className, methodNode, method, index, page);
+  }
+
+  // the page holding the instruction table of the method'th method of a class, of n instructions
+  static String page(String className, int method, int n) {
+    return Main.page == 0 || n <= Main.page ? file(className) : file(className, method);
+  }
+
+  // the instruction table comes from the caller,
+  // so the tree and single-pass renderers share the rest of the layout
+  void print(MethodNode methodNode, String fragment, int n, Consumer<HtmlPrinter> instructions)
+      throws IOException {
+    Stats.method(
+        () -> {
+          var printer = begin(methodNode, fragment, n);
+          if (printer != null) instructions.accept(printer);
+          end(printer, fragment, n);
+        },
+        className,
+        methodNode,
+        n);
+  }
+
+  // a method up to its instruction table, which is then written with the printer returned, this
+  // or one for the fragment, or not at all for null; the single-pass renderer calls this and end
+  // itself, as it writes the table while the class is read
+  HtmlPrinter begin(MethodNode methodNode, String fragment, int n) throws IOException {
     // heading
     var name = StringEscapeUtils.escapeHtml4(methodNode.name);
     markId("h2", name);
@@ -102,7 +371,9 @@ public final class HtmlPrinter {
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Flags\n");
-    writer.printf("<td class=\"bordered\">0x%x", methodNode.access);
+    writer.print(BORDERED);
+    writer.print("0x");
+    writer.hex(methodNode.access);
     if ((methodNode.access & ACC_PUBLIC) != 0) writer.print(" ACC_PUBLIC");
     if ((methodNode.access & ACC_PRIVATE) != 0) writer.print(" ACC_PRIVATE");
     if ((methodNode.access & ACC_PROTECTED) != 0) writer.print(" ACC_PROTECTED");
@@ -120,187 +391,267 @@ public final class HtmlPrinter {
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Name\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(name);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Desc\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(methodNode.desc);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Signature\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(methodNode.signature);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Annotation default\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(methodNode.annotationDefault);
     writer.print('\n');
 
-    writer.print("<tr>\n");
-    writer.print("<td class=\"bordered\">Max stack\n");
-    writer.print("<td class=\"bordered\">");
-    writer.print(methodNode.maxStack);
-    writer.print('\n');
+    // these come from the code attribute, which a summary does not read
+    if (!Main.summary) {
+      writer.print("<tr>\n");
+      writer.print("<td class=\"bordered\">Max stack\n");
+      writer.print(BORDERED);
+      writer.print(methodNode.maxStack);
+      writer.print('\n');
 
-    writer.print("<tr>\n");
-    writer.print("<td class=\"bordered\">Max locals\n");
-    writer.print("<td class=\"bordered\">");
-    writer.print(methodNode.maxLocals);
-    writer.print('\n');
+      writer.print("<tr>\n");
+      writer.print("<td class=\"bordered\">Max locals\n");
+      writer.print(BORDERED);
+      writer.print(methodNode.maxLocals);
+      writer.print('\n');
+    }
+
+    // which of HotSpot's limits the code is over, as the JIT would measure it
+    var offsets = offsets(methodNode);
+    if (offsets != null) {
+      var length = offsets[offsets.length - 1];
+      writer.print("<tr>\n");
+      writer.print("<td class=\"bordered\">Code length\n");
+      writer.print(BORDERED);
+      writer.print(length);
+      var limit = Code.limit(length);
+      if (limit != null) {
+        writer.print(", ");
+        writer.print(limit);
+      }
+      writer.print('\n');
+    }
 
     writer.print("</table>\n");
     writer.print("<br>\n");
 
     // TODO parameters and annotations
 
+    if (Main.xref) callers(methodNode);
+
     // instructions
-    var labelsUsed = new HashSet<LabelNode>();
-    for (var abstractInsnNode : methodNode.instructions)
-      switch (abstractInsnNode) {
-        case JumpInsnNode a -> labelsUsed.add(a.label);
-        case TableSwitchInsnNode a -> labelsUsed.addAll(a.labels);
-        case LookupSwitchInsnNode a -> labelsUsed.addAll(a.labels);
-        default -> {}
-      }
+    if (Main.summary) return null;
+    if (Main.page == 0 || n <= Main.page) return this;
+
+    // a big instruction table goes in a file of its own,
+    // only loaded when the reader expands it
+    var printer = new HtmlPrinter(format, new Utf8Writer(fragment), " target=\"_top\"");
+    printer.className = className;
+    printer.header(name);
+    return printer;
+  }
+
+  // the rest of a method after its instruction table
+  void end(HtmlPrinter printer, String fragment, int n) throws IOException {
+    if (printer == null || printer == this) return;
+    printer.writer.close();
+    if (Main.gzip) Etc.gzip(fragment);
+    writer.print("<details ontoggle=\"var f = this.querySelector('iframe');");
+    writer.print(" if (!f.src) f.src = f.dataset.src\">\n");
+    writer.print("<summary>");
+    writer.print(n);
+    writer.print(" instructions</summary>\n");
+    writer.print("<iframe data-src=\"");
+    writer.print(fragment);
+    writer.print("\" style=\"width: 100%; height: 80vh; border: none\"></iframe>\n");
+    writer.print("</details>\n");
+  }
+
+  // of each instruction, then the length of the code; null if not read from a class file
+  static int[] offsets(MethodNode methodNode) {
+    return methodNode instanceof Code.Node node ? node.offsets : null;
+  }
+
+  // the id of the row of an instruction that allocates, may block, or with -xref calls a method,
+  // from the method name escaped for HTML, the index of the method in its class and the offset of
+  // the instruction
+  static String id(String name, int method, int offset) {
+    return name + '_' + method + '_' + offset;
+  }
+
+  // a row that calls a method, so the callers of that method can link to it
+  private void row(String id) {
+    writer.print("<tr id=\"");
+    writer.print(id);
+    writer.print("\">\n");
+  }
 
-    var i = 0;
-    var labels = new HashMap<LabelNode, String>();
-    for (var abstractInsnNode : methodNode.instructions)
-      if (abstractInsnNode instanceof LabelNode a && labelsUsed.contains(a))
-        labels.put(a, "L" + i++);
+  // a row that allocates or may block, marked for the style, with the reasons as its title
+  private void row(String id, int site, String risk) {
+    writer.print("<tr id=\"");
+    writer.print(id);
+    writer.print("\" class=\"");
+    if (site != 0) writer.print((site & Allocations.LOOP) == 0 ? "alloc" : "alloc loop");
+    if (site != 0 && risk != null) writer.print(' ');
+    if (risk != null) writer.print("pin");
+    writer.print("\" title=\"");
+    if (site != 0) writer.print(Allocations.description(site));
+    if (site != 0 && risk != null) writer.print("; ");
+    if (risk != null) writer.print(risk);
+    writer.print("\">\n");
+  }
+
+  // sites are the allocations at each instruction and risks the reasons each may block while
+  // holding a monitor, or null where there are none
+  private void instructions(
+      MethodNode methodNode,
+      int method,
+      MethodIndex index,
+      Frames frames,
+      int[] sites,
+      String[] risks) {
+    var name = StringEscapeUtils.escapeHtml4(methodNode.name);
 
+    var offsets = offsets(methodNode);
     writer.print("<table>\n");
 
-    writer.print("<tr>\n");
+    writer.print(TR);
+    if (offsets != null) writer.print("<th>Offset\n");
     writer.print("<th>Line\n");
     writer.print("<th>Label\n");
     writer.print("<th>Opcode\n");
     writer.print("<th>Operands\n");
+    if (frames != null) {
+      writer.print("<th>Locals\n");
+      writer.print("<th>Stack\n");
+    }
 
-    var line = -1;
-    String label = null;
-    FrameNode frameNode = null;
-    for (var abstractInsnNode : methodNode.instructions) {
-      switch (abstractInsnNode) {
-        case LineNumberNode a -> {
-          assert line < 0;
-          line = a.line;
-          continue;
-        }
-        case LabelNode a -> {
-          assert label == null;
-          label = labels.get(a);
-          continue;
-        }
-        case FrameNode a -> {
-          // assert frameNode == null;
-          frameNode = a;
-          continue;
-        }
-        default -> {}
+    String locals = null;
+    for (var k = 0; k < index.size(); k++) {
+      var abstractInsnNode = methodNode.instructions.get(index.indexes[k]);
+      var site = sites == null ? 0 : sites[k];
+      var risk = risks == null ? null : risks[k];
+      var offset = offsets == null ? k : offsets[k];
+      if (site != 0 || risk != null) row(id(name, method, offset), site, risk);
+      else if (Main.xref && abstractInsnNode instanceof MethodInsnNode)
+        row(id(name, method, offset));
+      else writer.print(TR);
+
+      // offset
+      if (offsets != null) {
+        writer.print(TD);
+        writer.print(offsets[k]);
+        writer.print('\n');
       }
 
-      writer.print("<tr>\n");
-
       // line number
-      writer.print("<td>");
-      if (line >= 0) {
-        writer.print(line);
-        line = -1;
-      }
+      writer.print(TD);
+      if (index.lines[k] >= 0) writer.print(index.lines[k]);
       writer.print('\n');
 
       // label
-      writer.print("<td>");
-      if (label != null) {
-        markId("span", name + '_' + label, label);
-        label = null;
-      }
+      writer.print(TD);
+      if (index.labels[k] >= 0) markLabel(name, index.labels[k]);
       writer.print('\n');
 
       // opcode
-      writer.print("<td>");
-      writer.print(Etc.mnemonics[abstractInsnNode.getOpcode()]);
+      writer.print(TD);
+      writer.print(MNEMONICS[abstractInsnNode.getOpcode()]);
 
       // operands
       switch (abstractInsnNode) {
         case InsnNode ignored -> {}
         case IntInsnNode a -> {
-          writer.print("<td>");
+          writer.print(TD);
           writer.print(a.operand);
         }
         case VarInsnNode a -> {
-          writer.print("<td>%");
+          writer.print(TD_PERCENT);
           writer.print(a.var);
         }
         case TypeInsnNode a -> {
-          writer.print("<td>");
+          writer.print(TD);
           writer.print(a.desc);
         }
         case FieldInsnNode a -> {
-          writer.print("<td>");
-          writer.print(a.owner);
-          writer.print('.');
-          writer.print(StringEscapeUtils.escapeHtml4(a.name));
-          writer.print(' ');
-          writer.print(a.desc);
+          writer.print(TD);
+          member(a.owner, a.name, a.desc);
         }
         case MethodInsnNode a -> {
-          writer.print("<td>");
-          writer.print(a.owner);
-          writer.print('.');
-          writer.print(StringEscapeUtils.escapeHtml4(a.name));
-          writer.print(' ');
-          writer.print(a.desc);
+          writer.print(TD);
+          member(a.owner, a.name, a.desc);
         }
         case JumpInsnNode a -> {
-          writer.print("<td>");
-          var s = labels.get(a.label);
-          linkId(name + '_' + s, s);
+          writer.print(TD);
+          linkLabel(name, index.targets[index.targetStart[k]]);
         }
         case LdcInsnNode a -> {
-          writer.print("<td>");
+          writer.print(TD);
           writer.print(Etc.quote(a.cst));
         }
         case IincInsnNode a -> {
-          writer.print("<td>%");
+          writer.print(TD_PERCENT);
           writer.print(a.var);
           writer.print(' ');
           writer.print(a.incr);
         }
         case TableSwitchInsnNode a -> {
-          writer.print("<td>");
+          writer.print(TD);
           writer.print(a.min);
           writer.print(' ');
           writer.print(a.max);
           writer.print(' ');
-          var s = labels.get(a.dflt);
-          linkId(name + '_' + s, s);
-          for (var L : a.labels) {
-            writer.print(' ');
-            s = labels.get(L);
-            linkId(name + '_' + s, s);
-          }
+          switchTargets(name, index, k);
+        }
+        case LookupSwitchInsnNode ignored -> {
+          writer.print(TD);
+          switchTargets(name, index, k);
+        }
+        case InvokeDynamicInsnNode a -> {
+          writer.print(TD);
+          writer.print(StringEscapeUtils.escapeHtml4(a.name));
+          writer.print(' ');
+          writer.print(a.desc);
+          writer.print(' ');
+          writer.print(a.bsm.getOwner());
+          writer.print('.');
+          writer.print(StringEscapeUtils.escapeHtml4(a.bsm.getName()));
         }
-        case LookupSwitchInsnNode a -> {
-          writer.print("<td>");
-          var s = labels.get(a.dflt);
-          linkId(name + '_' + s, s);
-          for (var L : a.labels) {
-            writer.print(' ');
-            s = labels.get(L);
-            linkId(name + '_' + s, s);
-          }
+        case MultiANewArrayInsnNode a -> {
+          writer.print(TD);
+          writer.print(a.desc);
+          writer.print(' ');
+          writer.print(a.dims);
         }
         default -> throw new IllegalArgumentException(Integer.toString(abstractInsnNode.getType()));
       }
 
+      // types, in columns of their own even where there are no operands; locals only where
+      // they change, and nothing where the code is unreachable
+      if (frames != null) {
+        if (abstractInsnNode instanceof InsnNode) writer.print(TD);
+        var i = index.indexes[k];
+        writer.print(TD);
+        if (frames.locals[i] != null && frames.locals[i] != locals) {
+          locals = frames.locals[i];
+          writer.print(locals);
+        }
+        writer.print(TD);
+        if (frames.stack[i] != null) writer.print(frames.stack[i]);
+      }
+
       writer.print('\n');
     }
 
@@ -339,7 +690,9 @@ public final class HtmlPrinter {
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Flags\n");
-    writer.printf("<td class=\"bordered\">0x%x", fieldNode.access);
+    writer.print(BORDERED);
+    writer.print("0x");
+    writer.hex(fieldNode.access);
     if ((fieldNode.access & ACC_PUBLIC) != 0) writer.print(" ACC_PUBLIC");
     if ((fieldNode.access & ACC_PRIVATE) != 0) writer.print(" ACC_PRIVATE");
     if ((fieldNode.access & ACC_PROTECTED) != 0) writer.print(" ACC_PROTECTED");
@@ -354,25 +707,25 @@ public final class HtmlPrinter {
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Name\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(fieldNode.name);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Desc\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(fieldNode.desc);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Signature\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(fieldNode.signature);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Value\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(fieldNode.value);
     writer.print('\n');
 
@@ -380,38 +733,51 @@ public final class HtmlPrinter {
     // TODO annotations
   }
 
-  private void print(ClassNode classNode) {
-    // HTML header
+  static String style() {
+    var s = STYLE;
+    if (Main.alloc) s += ALLOC_STYLE;
+    if (Main.pinning) s += PIN_STYLE;
+    return s;
+  }
+
+  void header(String title) {
     writer.print("<!DOCTYPE html>\n");
     writer.print("<html lang=\"en\">\n");
     writer.print("<meta charset=\"utf-8\"/>\n");
     writer.print("<title>");
-    writer.print(simple(classNode.name));
+    writer.print(title);
     writer.print("</title>\n");
 
+    if (Main.site) {
+      writer.print("<link rel=\"stylesheet\" href=\"" + STYLESHEET + "\">\n");
+      return;
+    }
     writer.print("<style>\n");
+    writer.print(style());
+    writer.print("</style>\n");
+  }
 
-    writer.print("html * {\n");
-    writer.print("font-family: \"Verdana\";\n");
-    writer.print("}\n");
-
-    // TODO Will caption actually be used?
-    writer.print("caption {\n");
-    writer.print("text-align: left;\n");
-    writer.print("white-space: nowrap;\n");
-    writer.print("}\n");
+  private void print(ClassNode classNode) throws IOException {
+    top(classNode);
 
-    writer.print("table.bordered, th.bordered, td.bordered {\n");
-    writer.print("border: 1px solid;\n");
-    writer.print("border-collapse: collapse;\n");
-    writer.print("}\n");
+    // methods
+    if (Etc.some(classNode.methods)) writer.print("<h1 id=\"Methods\">Methods</h1>\n");
+    var frames = Main.frames > 0 ? Frames.start(classNode) : null;
+    for (var i = 0; i < classNode.methods.size(); i++)
+      print(
+          classNode.methods.get(i),
+          file(classNode.name, i),
+          i,
+          frames == null ? null : frames.get(i));
+  }
 
-    writer.print("th, td {\n");
-    writer.print("padding-left: 4px;\n");
-    writer.print("padding-right: 4px;\n");
-    writer.print("}\n");
+  // everything before the methods
+  void top(ClassNode classNode) {
+    className = classNode.name;
+    if (Main.search && Main.report()) format.search.add(classNode);
 
-    writer.print("</style>\n");
+    // HTML header
+    header(simple(classNode.name));
 
     // contents
     writer.print("<h1 id=\"Contents\">Contents</h1>\n");
@@ -505,8 +871,10 @@ public final class HtmlPrinter {
 
     writer.print(classNode.name);
 
-    if (classNode.superName != null && !classNode.superName.equals("java/lang/Object"))
-      writer.print(" extends " + classNode.superName);
+    if (classNode.superName != null && !classNode.superName.equals("java/lang/Object")) {
+      writer.print(" extends ");
+      linkClass(classNode.superName);
+    }
 
     if (Etc.some(classNode.interfaces)) {
       writer.print(" implements");
@@ -515,7 +883,7 @@ public final class HtmlPrinter {
         if (more) writer.print(',');
         more = true;
         writer.print(' ');
-        writer.print(s);
+        linkClass(s);
       }
     }
 
@@ -527,13 +895,15 @@ public final class HtmlPrinter {
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Version\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.version);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Flags\n");
-    writer.printf("<td class=\"bordered\">0x%x", classNode.access);
+    writer.print(BORDERED);
+    writer.print("0x");
+    writer.hex(classNode.access);
     if ((classNode.access & ACC_PUBLIC) != 0) writer.print(" ACC_PUBLIC");
     if ((classNode.access & ACC_PRIVATE) != 0) writer.print(" ACC_PRIVATE");
     if ((classNode.access & ACC_PROTECTED) != 0) writer.print(" ACC_PROTECTED");
@@ -549,49 +919,50 @@ public final class HtmlPrinter {
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Name\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.name);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Signature\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.signature);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Super\n");
-    writer.print("<td class=\"bordered\">");
-    writer.print(classNode.superName);
+    writer.print(BORDERED);
+    if (classNode.superName == null) writer.print("null");
+    else linkClass(classNode.superName);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Source file\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.sourceFile);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Source debug\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.sourceDebug);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Outer class\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.outerClass);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Outer method\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.outerMethod);
     writer.print('\n');
 
     writer.print("<tr>\n");
     writer.print("<td class=\"bordered\">Outer method desc\n");
-    writer.print("<td class=\"bordered\">");
+    writer.print(BORDERED);
     writer.print(classNode.outerMethodDesc);
     writer.print('\n');
 
@@ -600,10 +971,6 @@ public final class HtmlPrinter {
     // fields
     if (Etc.some(classNode.fields)) writer.print("<h1 id=\"Fields\">Fields</h1>\n");
     for (var fieldNode : classNode.fields) print(fieldNode);
-
-    // methods
-    if (Etc.some(classNode.methods)) writer.print("<h1 id=\"Methods\">Methods</h1>\n");
-    for (var methodNode : classNode.methods) print(methodNode);
   }
 
   private static String simple(String name) {
@@ -612,13 +979,115 @@ public final class HtmlPrinter {
     return name.substring(i + 1);
   }
 
-  HtmlPrinter(Collection<ClassNode> classes) throws FileNotFoundException {
-    for (var classNode : classes) classNames.add(classNode.name);
-    for (var classNode : classes) {
-      try (var writer = new PrintWriter(classNode.name.replace('/', '-') + ".html")) {
-        this.writer = writer;
-        print(classNode);
+  static String file(String className) {
+    return className.replace('/', '-') + ".html";
+  }
+
+  // fragment holding the instructions of the i'th method, when paged
+  static String file(String className, int i) {
+    return className.replace('/', '-') + '.' + i + ".html";
+  }
+
+  // each page gets its own printer, so pages can be written concurrently
+  static void write(Format format, ClassNode classNode) throws IOException {
+    var file = file(classNode.name);
+    try (var writer = new Utf8Writer(file)) {
+      new HtmlPrinter(format, writer, "").print(classNode);
+    }
+    if (Main.gzip) Etc.gzip(file);
+  }
+
+  static void write(Format format, ClassReader classReader) throws IOException {
+    if (!Main.visitor) {
+      write(format, Main.parse(classReader));
+      return;
+    }
+    var file = file(classReader.getClassName());
+    try (var writer = new Utf8Writer(file)) {
+      HtmlVisitor.print(new HtmlPrinter(format, writer, ""), classReader);
+    }
+    if (Main.gzip) Etc.gzip(file);
+  }
+
+  static final class Format extends Printer {
+    // stays empty when streaming, since a class may be rendered before others are read
+    private final Symbols symbols = new Symbols();
+    private final Search search = new Search();
+    private final CallGraph graph = new CallGraph();
+    private final Inlining inlining = new Inlining();
+    private final Allocations allocations = new Allocations();
+    private final Pinning pinning = new Pinning();
+
+    @Override
+    String file(String className) {
+      return HtmlPrinter.file(className);
+    }
+
+    @Override
+    void index(ClassReader classReader) {
+      symbols.add(classReader);
+      if (Main.xref) graph.add(classReader);
+      if (Main.inlining && Main.report()) inlining.add(classReader);
+      if (Main.pinning) pinning.add(classReader);
+    }
+
+    @Override
+    void print(ClassNode classNode) throws IOException {
+      write(this, classNode);
+    }
+
+    @Override
+    void print(ClassReader classReader) throws IOException {
+      write(this, classReader);
+    }
+
+    // every class has been read, so the call graph is complete
+    void freeze() {
+      if (Main.xref) graph.freeze();
+    }
+
+    @Override
+    void print(Collection<ClassReader> classes) {
+      freeze();
+      super.print(classes);
+    }
+
+    // a page rendered in memory, for serving; a big method stays on the page,
+    // since there is no file to put it in
+    byte[] page(ClassReader classReader) throws IOException {
+      var bytes = new ByteArrayOutputStream();
+      try (var writer = new Utf8Writer(Channels.newChannel(bytes))) {
+        var printer = new HtmlPrinter(this, writer, "");
+        if (Main.visitor) HtmlVisitor.print(printer, classReader);
+        else printer.print(Main.parse(classReader));
       }
+      return bytes.toByteArray();
+    }
+
+    @Override
+    void forget(String className) {
+      symbols.remove(className);
+    }
+
+    // the page of a skipped class is still there, so it still belongs in the search
+    @Override
+    void skip(ClassReader classReader) {
+      if (!Main.search) return;
+      var classNode = new ClassNode(ASM9);
+      classReader.accept(
+          classNode, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+      search.add(classNode);
+    }
+
+    @Override
+    void close() throws IOException {
+      if (Main.search) search.write();
+      if (Main.inlining) inlining.write(Main.xref ? graph : null);
+      if (Main.alloc) allocations.write();
+      if (Main.pinning) pinning.write();
+      if (!Main.site) return;
+      Files.writeString(Path.of(STYLESHEET), style(), StandardCharsets.UTF_8);
+      if (Main.gzip) Etc.gzip(STYLESHEET);
     }
   }
 }
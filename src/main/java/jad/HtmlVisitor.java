@@ -0,0 +1,333 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.text.StringEscapeUtils;
+import org.objectweb.asm.*;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+// Renders the same page as the tree-based printer, but emits each method's instructions
+// during a single pass over the class file instead of materializing instruction nodes.
+// Everything before the instructions comes from a skeleton ClassNode read with SKIP_CODE,
+// which never decodes any bytecode. A label's name depends on how many used labels come
+// before it, including those only branched to from further on, and max stack and locals
+// are only visited after the code, so both are read from the Code attributes first; then
+// each row is written as it is visited, and nothing is held back.
+final class HtmlVisitor extends ClassVisitor {
+  // where the code of a method starts in the class file, or -1 for none, and the offsets of
+  // its labels in order, counting only branch targets other than a switch's default
+  private record Body(int u, int[] labels) {}
+
+  private final HtmlPrinter printer;
+  private final ClassReader classReader;
+  private final ClassNode classNode;
+  private final List<Body> bodies = new ArrayList<>();
+  private int i;
+
+  private HtmlVisitor(HtmlPrinter printer, ClassReader classReader, ClassNode classNode) {
+    super(ASM9);
+    this.printer = printer;
+    this.classReader = classReader;
+    this.classNode = classNode;
+    Code.methods(
+        classReader,
+        (name, desc, code) -> {
+          if (code < 0) {
+            bodies.add(new Body(-1, null));
+            return;
+          }
+          var methodNode = classNode.methods.get(bodies.size());
+          methodNode.maxStack = classReader.readUnsignedShort(code);
+          methodNode.maxLocals = classReader.readUnsignedShort(code + 2);
+          bodies.add(
+              new Body(code + 8, labels(classReader, code + 8, classReader.readInt(code + 4))));
+        });
+  }
+
+  private static int[] labels(ClassReader classReader, int u, int length) {
+    var v = new int[16];
+    var n = 0;
+    for (var pc = 0; pc < length; pc += Code.size(classReader, u, pc)) {
+      var targets = Code.targets(classReader, u, pc);
+      var opcode = classReader.readByte(u + pc);
+      var from = opcode == TABLESWITCH || opcode == LOOKUPSWITCH ? 1 : 0;
+      for (var j = from; j < targets.length; j++) {
+        if (n == v.length) v = Arrays.copyOf(v, n * 2);
+        v[n++] = targets[j];
+      }
+    }
+    Arrays.sort(v, 0, n);
+    var k = 0;
+    for (var j = 0; j < n; j++) if (j == 0 || v[j] != v[j - 1]) v[k++] = v[j];
+    return Arrays.copyOf(v, k);
+  }
+
+  @Override
+  public MethodVisitor visitMethod(
+      int access, String name, String descriptor, String signature, String[] exceptions) {
+    var fragment = HtmlPrinter.file(classNode.name, i);
+    try {
+      return new Method(classNode.methods.get(i), i, bodies.get(i++), fragment);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private final class Method extends MethodVisitor {
+    private final MethodNode methodNode;
+    private final int method;
+    private final int u;
+    private final int[] labels;
+    private final String fragment;
+    private final String name;
+    private final int[] offsets;
+    private final Stats.Timer timer = new Stats.Timer();
+
+    // the printer the instruction table is written with; only null for a summary, which does
+    // not render in one pass
+    private final HtmlPrinter out;
+    private final Utf8Writer writer;
+
+    private int n;
+    private int line = -1;
+
+    Method(MethodNode methodNode, int method, Body body, String fragment) throws IOException {
+      super(ASM9);
+      this.methodNode = methodNode;
+      this.method = method;
+      u = body.u;
+      labels = body.labels;
+      this.fragment = fragment;
+      name = StringEscapeUtils.escapeHtml4(methodNode.name);
+      offsets = HtmlPrinter.offsets(methodNode);
+      out = printer.begin(methodNode, fragment, size());
+      writer = out == null ? null : out.writer;
+      if (writer == null) return;
+
+      writer.print("<table>\n");
+
+      writer.print("<tr>\n");
+      if (offsets != null) writer.print("<th>Offset\n");
+      writer.print("<th>Line\n");
+      writer.print("<th>Label\n");
+      writer.print("<th>Opcode\n");
+      writer.print("<th>Operands\n");
+    }
+
+    private int size() {
+      return offsets == null ? 0 : offsets.length - 1;
+    }
+
+    // the name of the label at an offset, or -1 if nothing counted branches there
+    private int label(int offset) {
+      var j = Arrays.binarySearch(labels, offset);
+      return j < 0 ? -1 : j;
+    }
+
+    // where the instruction about to be visited branches to, for a switch its default first
+    private int[] targets() {
+      return Code.targets(classReader, u, offsets[n]);
+    }
+
+    private void row(int opcode) {
+      writer.print("<tr>\n");
+      cells(opcode);
+    }
+
+    // with -xref, a call has an id, so the callers of its method can link to it
+    private void row(int opcode, boolean call) {
+      if (!call) {
+        row(opcode);
+        return;
+      }
+      writer.print("<tr id=\"");
+      writer.print(HtmlPrinter.id(name, method, offsets[n]));
+      writer.print("\">\n");
+      cells(opcode);
+    }
+
+    private void cells(int opcode) {
+      // offset
+      writer.print("<td>");
+      writer.print(offsets[n]);
+      writer.print('\n');
+
+      // line number
+      writer.print("<td>");
+      if (line >= 0) {
+        writer.print(line);
+        line = -1;
+      }
+      writer.print('\n');
+
+      // label
+      writer.print("<td>");
+      var label = label(offsets[n]);
+      if (label >= 0) out.markLabel(name, label);
+      writer.print('\n');
+      n++;
+
+      // opcode
+      writer.print("<td>");
+      writer.print(Etc.mnemonics[opcode]);
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+      this.line = line;
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      row(opcode);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+      row(opcode);
+      writer.print("<td>");
+      writer.print(operand);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+      row(opcode);
+      writer.print("<td>%");
+      writer.print(var);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+      row(opcode);
+      writer.print("<td>");
+      writer.print(type);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+      row(opcode);
+      writer.print("<td>");
+      out.member(owner, name, descriptor);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitMethodInsn(
+        int opcode, String owner, String name, String descriptor, boolean isInterface) {
+      row(opcode, Main.xref);
+      writer.print("<td>");
+      out.member(owner, name, descriptor);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(
+        String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapArgs) {
+      row(INVOKEDYNAMIC);
+      writer.print("<td>");
+      writer.print(StringEscapeUtils.escapeHtml4(name));
+      writer.print(' ');
+      writer.print(descriptor);
+      writer.print(' ');
+      writer.print(bootstrapMethodHandle.getOwner());
+      writer.print('.');
+      writer.print(StringEscapeUtils.escapeHtml4(bootstrapMethodHandle.getName()));
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+      var targets = targets();
+      row(opcode);
+      writer.print("<td>");
+      out.linkLabel(name, label(targets[0]));
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitLdcInsn(Object value) {
+      row(LDC);
+      writer.print("<td>");
+      writer.print(Etc.quote(value));
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitIincInsn(int var, int increment) {
+      row(IINC);
+      writer.print("<td>%");
+      writer.print(var);
+      writer.print(' ');
+      writer.print(increment);
+      writer.print('\n');
+    }
+
+    // as in the tree-based printer, a switch's default label does not count as used
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+      var targets = targets();
+      row(TABLESWITCH);
+      writer.print("<td>");
+      writer.print(min);
+      writer.print(' ');
+      writer.print(max);
+      writer.print(' ');
+      switchTargets(targets);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+      var targets = targets();
+      row(LOOKUPSWITCH);
+      writer.print("<td>");
+      switchTargets(targets);
+    }
+
+    private void switchTargets(int[] targets) {
+      for (var j = 0; j < targets.length; j++) {
+        if (j > 0) writer.print(' ');
+        out.linkLabel(name, label(targets[j]));
+      }
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+      row(MULTIANEWARRAY);
+      writer.print("<td>");
+      writer.print(descriptor);
+      writer.print(' ');
+      writer.print(numDimensions);
+      writer.print('\n');
+    }
+
+    @Override
+    public void visitEnd() {
+      try {
+        if (writer != null) writer.print("</table>\n");
+        printer.end(out, fragment, size());
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      timer.end(classNode.name, methodNode, size());
+    }
+  }
+
+  static void print(HtmlPrinter printer, ClassReader classReader) {
+    var classNode = Code.parse(classReader, ClassReader.SKIP_CODE);
+    printer.top(classNode);
+
+    // methods
+    if (Etc.some(classNode.methods)) printer.writer.print("<h1 id=\"Methods\">Methods</h1>\n");
+    classReader.accept(new HtmlVisitor(printer, classReader, classNode), ClassReader.SKIP_FRAMES);
+  }
+}
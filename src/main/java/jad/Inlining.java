@@ -0,0 +1,76 @@
+package jad;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.commons.text.StringEscapeUtils;
+import org.objectweb.asm.ClassReader;
+
+// Every method in the input too big for HotSpot to inline at an ordinary call site, biggest
+// first, written at the end of the run as a page whose columns sort when their headings are
+// clicked. With -xref, the number of call sites in the input says which are likely to be hot.
+final class Inlining {
+  static final String PAGE = "inlining.html";
+
+  private record Entry(int length, String className, String name, String desc) {}
+
+  private static final Comparator<Entry> ORDER =
+      Comparator.comparingInt(Entry::length)
+          .reversed()
+          .thenComparing(Entry::className)
+          .thenComparing(Entry::name)
+          .thenComparing(Entry::desc);
+
+  private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+  void add(ClassReader classReader) {
+    var className = classReader.getClassName();
+    for (var method : Code.methods(classReader)) {
+      var offsets = method.offsets();
+      if (offsets == null) continue;
+      var length = offsets[offsets.length - 1];
+      if (length > Code.MAX_INLINE_SIZE)
+        entries.add(new Entry(length, className, method.name(), method.desc()));
+    }
+  }
+
+  // graph is null without -xref
+  void write(CallGraph graph) throws IOException {
+    // a class given twice is listed once
+    var v = new TreeSet<>(ORDER);
+    v.addAll(entries);
+
+    var sb = new StringBuilder();
+    sb.append(HtmlPrinter.reportHead("Inlining"));
+    sb.append("<table>\n");
+    sb.append("<tr>\n");
+    sb.append("<th>Bytes\n");
+    sb.append("<th>Limit\n");
+    if (graph != null) sb.append("<th>Call sites\n");
+    sb.append("<th>Class\n");
+    sb.append("<th>Method\n");
+    for (var e : v) {
+      var name = StringEscapeUtils.escapeHtml4(e.name);
+      var page = HtmlPrinter.file(e.className);
+      sb.append("<tr>\n");
+      sb.append("<td>").append(e.length).append('\n');
+      sb.append("<td>").append(Code.limit(e.length)).append('\n');
+      if (graph != null) {
+        var id = graph.id(e.className, e.name, e.desc);
+        sb.append("<td>").append(id < 0 ? 0 : graph.end(id) - graph.start(id)).append('\n');
+      }
+      sb.append("<td><a href=\"").append(page).append("\">");
+      sb.append(e.className).append("</a>\n");
+      sb.append("<td><a href=\"").append(page).append('#').append(name).append("\">");
+      sb.append(name).append("</a> ").append(e.desc).append('\n');
+    }
+    sb.append("</table>\n");
+    sb.append(HtmlPrinter.SORTABLE);
+
+    Files.writeString(Path.of(PAGE), sb, StandardCharsets.UTF_8);
+    if (Main.gzip) Etc.gzip(PAGE);
+  }
+}
@@ -0,0 +1,180 @@
+package jad;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.RecursiveTask;
+
+// Expands command line args into the class files they denote. Archives are opened in place
+// through the zip file system, so entries are only inflated when they are read, which happens
+// on the worker threads.
+public final class Inputs {
+  // filters, applied to paths before anything is read
+  static final Set<String> modules = new HashSet<>();
+  static final List<String> packages = new ArrayList<>();
+
+  // archives opened so far, innermost last; entries are read through them until close
+  private static final List<FileSystem> fileSystems = new ArrayList<>();
+
+  private Inputs() {}
+
+  private static boolean isArchive(Path path) {
+    return switch (Etc.ext(path.toString()).toLowerCase(Locale.ROOT)) {
+      case "jar", "zip", "jmod" -> true;
+      default -> false;
+    };
+  }
+
+  private static boolean isModule(String name) {
+    return modules.isEmpty() || modules.contains(name);
+  }
+
+  // packages are matched as prefixes, so they include their subpackages
+  static boolean isPackage(Path root, Path path) {
+    if (packages.isEmpty()) return true;
+    var name = root.relativize(path).toString();
+    var separator = path.getFileSystem().getSeparator();
+    if (!separator.equals("/")) name = name.replace(separator, "/");
+    for (var s : packages) if (name.startsWith(s)) return true;
+    return false;
+  }
+
+  static boolean isClass(Path path) {
+    return Etc.ext(path.toString()).equals("class");
+  }
+
+  // Lists a tree with one fork-join task per directory, so that slow readdir calls
+  // on network mounts or very deep trees overlap instead of running one after another.
+  // Results come back in sorted order regardless of which task finishes first.
+  private static final class Walk extends RecursiveTask<List<Path>> {
+    // tasks are never serialized, but ForkJoinTask is Serializable
+    @Serial private static final long serialVersionUID = 1L;
+
+    private final transient Path dir;
+    private final boolean archives;
+
+    Walk(Path dir, boolean archives) {
+      this.dir = dir;
+      this.archives = archives;
+    }
+
+    @Override
+    protected List<Path> compute() {
+      var entries = new ArrayList<Path>();
+      try (var stream = Files.newDirectoryStream(dir)) {
+        for (var path : stream) entries.add(path);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      entries.sort(null);
+
+      var v = new ArrayList<Object>();
+      for (var path : entries)
+        if (Files.isDirectory(path)) v.add(new Walk(path, archives).fork());
+        else if (isClass(path) || archives && isArchive(path)) v.add(path);
+
+      var paths = new ArrayList<Path>();
+      for (var a : v)
+        if (a instanceof Walk walk) paths.addAll(walk.join());
+        else paths.add((Path) a);
+      return paths;
+    }
+  }
+
+  private static List<Path> walk(Path dir, boolean archives) {
+    return Etc.pool().invoke(new Walk(dir, archives));
+  }
+
+  private static void tree(Path root, boolean archives, List<Path> paths) throws IOException {
+    for (var path : walk(root, archives))
+      if (isArchive(path)) archive(path, paths);
+      else if (isPackage(root, path)) paths.add(path);
+  }
+
+  private static void archive(Path file, List<Path> paths) throws IOException {
+    // a jmod keeps its classes under classes/ and is named after its module
+    var name = file.getFileName().toString();
+    var jmod = Etc.ext(name).equals("jmod");
+    if (jmod && !isModule(name.substring(0, name.length() - 5))) return;
+
+    // nested archives such as Spring Boot BOOT-INF/lib/*.jar open the same way,
+    // the zip file system reading the outer entry into memory rather than a temporary file
+    var fileSystem = FileSystems.newFileSystem(file);
+    fileSystems.add(fileSystem);
+    if (jmod) tree(fileSystem.getPath("/classes"), false, paths);
+    else tree(fileSystem.getPath("/"), true, paths);
+  }
+
+  // the running JDK's own classes, jrt:/ for all modules or jrt:/MODULE for one
+  private static void jrt(String arg, List<Path> paths) throws IOException {
+    var dir = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules");
+    var name = arg.substring("jrt:/".length());
+    if (!name.isEmpty()) {
+      tree(dir.resolve(name), false, paths);
+      return;
+    }
+    var v = new ArrayList<Path>();
+    try (var stream = Files.newDirectoryStream(dir)) {
+      for (var path : stream) if (isModule(path.getFileName().toString())) v.add(path);
+    }
+    v.sort(null);
+    for (var path : v) tree(path, false, paths);
+  }
+
+  private static void add(Path path, List<Path> paths) throws IOException {
+    if (Files.isDirectory(path)) tree(path, false, paths);
+    else if (isArchive(path)) archive(path, paths);
+    else paths.add(path);
+  }
+
+  // the directory, archive or module a class file is in, for reports that sum by input
+  static String source(Path path, String className) {
+    var fileSystem = path.getFileSystem();
+    if (fileSystem.provider().getScheme().equals("jrt")) return "jrt:/" + path.getName(1);
+    if (fileSystem != FileSystems.getDefault()) return fileSystem.toString();
+    var dir = path.getParent();
+    for (var i = className.indexOf('/'); i >= 0 && dir != null; i = className.indexOf('/', i + 1))
+      dir = dir.getParent();
+    return dir == null ? "." : dir.toString();
+  }
+
+  // once every class has been read; a nested archive is closed before the one it is in
+  static void close() {
+    for (var i = fileSystems.size() - 1; i >= 0; i--)
+      try {
+        fileSystems.get(i).close();
+      } catch (IOException e) {
+        System.err.printf("%s: %s\n", fileSystems.get(i), e);
+      }
+    fileSystems.clear();
+  }
+
+  static List<Path> expand(List<String> args) throws IOException {
+    var paths = new ArrayList<Path>();
+    for (var arg : args) {
+      if (arg.startsWith("jrt:/")) {
+        jrt(arg, paths);
+        continue;
+      }
+
+      // class path string of directories and archives;
+      // like java, ignore elements that don't exist
+      if (arg.contains(File.pathSeparator)) {
+        for (var s : arg.split(File.pathSeparator)) {
+          if (s.isEmpty()) continue;
+          var path = Path.of(s);
+          if (Files.exists(path)) add(path, paths);
+        }
+        continue;
+      }
+      add(Path.of(arg), paths);
+    }
+    return paths;
+  }
+}
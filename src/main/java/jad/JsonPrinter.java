@@ -0,0 +1,135 @@
+package jad;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import org.objectweb.asm.tree.*;
+
+// One JSON record per method on standard output, for piping into other tools.
+// Each record is built apart from the others and written whole,
+// so records from classes printed in parallel may interleave but never mix.
+final class JsonPrinter extends Printer {
+  private final PrintStream out =
+      new PrintStream(
+          new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+          false,
+          StandardCharsets.UTF_8);
+
+  @Override
+  String file(String className) {
+    return null;
+  }
+
+  private static void label(StringBuilder sb, int label) {
+    if (label < 0) sb.append("null");
+    else sb.append("\"L").append(label).append('"');
+  }
+
+  private static void strings(StringBuilder sb, String... v) {
+    for (var i = 0; i < v.length; i++) {
+      if (i > 0) sb.append(',');
+      Etc.json(sb, v[i]);
+    }
+  }
+
+  private static void targets(StringBuilder sb, MethodIndex index, int k) {
+    for (var j = index.targetStart[k]; j < index.targetStart[k + 1]; j++) {
+      if (j > index.targetStart[k]) sb.append(',');
+      label(sb, index.targets[j]);
+    }
+  }
+
+  private static void constant(StringBuilder sb, Object a) {
+    switch (a) {
+      case Integer a1 -> sb.append(a1);
+      case Long a1 -> sb.append(a1);
+      case Float a1 -> {
+        if (a1.isNaN() || a1.isInfinite()) Etc.json(sb, a1.toString());
+        else sb.append(a1);
+      }
+      case Double a1 -> {
+        if (a1.isNaN() || a1.isInfinite()) Etc.json(sb, a1.toString());
+        else sb.append(a1);
+      }
+      default -> Etc.json(sb, a.toString());
+    }
+  }
+
+  private static void args(
+      StringBuilder sb, AbstractInsnNode abstractInsnNode, MethodIndex index, int k) {
+    switch (abstractInsnNode) {
+      case InsnNode ignored -> {}
+      case IntInsnNode a -> sb.append(a.operand);
+      case VarInsnNode a -> sb.append(a.var);
+      case TypeInsnNode a -> Etc.json(sb, a.desc);
+      case FieldInsnNode a -> strings(sb, a.owner, a.name, a.desc);
+      case MethodInsnNode a -> strings(sb, a.owner, a.name, a.desc);
+      case InvokeDynamicInsnNode a -> strings(
+          sb, a.name, a.desc, a.bsm.getOwner(), a.bsm.getName());
+      case JumpInsnNode ignored -> targets(sb, index, k);
+      case LdcInsnNode a -> constant(sb, a.cst);
+      case IincInsnNode a -> sb.append(a.var).append(',').append(a.incr);
+      case TableSwitchInsnNode a -> {
+        sb.append(a.min).append(',').append(a.max).append(',');
+        targets(sb, index, k);
+      }
+      case LookupSwitchInsnNode ignored -> targets(sb, index, k);
+      case MultiANewArrayInsnNode a -> {
+        Etc.json(sb, a.desc);
+        sb.append(',').append(a.dims);
+      }
+      default -> throw new IllegalArgumentException(Integer.toString(abstractInsnNode.getType()));
+    }
+  }
+
+  private static String record(ClassNode classNode, MethodNode methodNode) {
+    var sb = new StringBuilder();
+    sb.append("{\"class\":");
+    Etc.json(sb, classNode.name);
+    sb.append(",\"name\":");
+    Etc.json(sb, methodNode.name);
+    sb.append(",\"desc\":");
+    Etc.json(sb, methodNode.desc);
+    sb.append(",\"access\":").append(methodNode.access);
+    sb.append(",\"maxStack\":").append(methodNode.maxStack);
+    sb.append(",\"maxLocals\":").append(methodNode.maxLocals);
+
+    sb.append(",\"code\":[");
+    var index = new MethodIndex(methodNode);
+    for (var k = 0; k < index.size(); k++) {
+      if (k > 0) sb.append(',');
+      sb.append('{');
+      if (index.lines[k] >= 0) sb.append("\"line\":").append(index.lines[k]).append(',');
+      if (index.labels[k] >= 0) {
+        sb.append("\"label\":");
+        label(sb, index.labels[k]);
+        sb.append(',');
+      }
+      var abstractInsnNode = methodNode.instructions.get(index.indexes[k]);
+      sb.append("\"op\":\"").append(Etc.mnemonics[abstractInsnNode.getOpcode()]);
+      sb.append("\",\"args\":[");
+      args(sb, abstractInsnNode, index, k);
+      sb.append("]}");
+    }
+    sb.append("]}\n");
+    return sb.toString();
+  }
+
+  @Override
+  void print(ClassNode classNode) {
+    for (var methodNode : classNode.methods) {
+      var s = record(classNode, methodNode);
+      Stats.wrote(s.length());
+      synchronized (out) {
+        out.print(s);
+      }
+    }
+    synchronized (out) {
+      out.flush();
+    }
+  }
+
+  @Override
+  void close() {
+    out.flush();
+  }
+}
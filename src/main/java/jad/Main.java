@@ -1,26 +1,342 @@
 package jad;
 
-import static org.objectweb.asm.Opcodes.ASM9;
-
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
 
 public class Main {
-  private static final Option[] OPTIONS = new Option[] {};
+  static int threads = Runtime.getRuntime().availableProcessors();
+  static int budget = 64 << 20;
+  static int page;
+  private static boolean stream;
+  static boolean visitor;
+  static boolean summary;
+  private static String cacheFile;
+  static Cache cache;
+  static Printer printer = new HtmlPrinter.Format();
+  private static String format = "html";
+  static boolean site;
+  static boolean gzip;
+  static boolean search;
+  static boolean xref;
+  static boolean inlining;
+  static boolean alloc;
+  static boolean pinning;
+  private static boolean histogram;
+  static int serve;
+  static int lru = 256 << 20;
+  private static boolean watch;
+
+  // set once the first run is done and only changed classes are rendered
+  static boolean watching;
+  static int stats;
+  static int frames;
 
-  public static void main(String[] args) throws IOException {
+  private static final Option[] OPTIONS =
+      new Option[] {
+        new Option("number of threads", "N", "j") {
+          void accept(String arg) {
+            threads = parsePositive(arg);
+          }
+        },
+        new Option("read classes from directories and archives", "path", "cp", "classpath") {
+          void accept(String arg) {
+            positionalArgs.add(arg);
+          }
+        },
+        new Option("only read these modules from jrt:/ and jmods", "names", "module") {
+          void accept(String arg) {
+            Inputs.modules.addAll(Arrays.asList(arg.split(",")));
+          }
+        },
+        new Option("only read classes in these packages and subpackages", "names", "package") {
+          void accept(String arg) {
+            for (var s : arg.split(",")) Inputs.packages.add(s.replace('.', '/') + '/');
+          }
+        },
+        new Option("render each class as soon as it is parsed", null, "stream") {
+          void accept(String arg) {
+            stream = true;
+          }
+        },
+        new Option("output format: html, text or ndjson", "name", "format") {
+          void accept(String arg) {
+            printer = Printer.of(arg);
+            if (printer == null) {
+              System.err.printf("%s: unknown format\n", arg);
+              System.exit(1);
+            }
+            format = arg;
+          }
+        },
+        new Option("link pages to one shared stylesheet, jad.css", null, "site") {
+          void accept(String arg) {
+            site = true;
+          }
+        },
+        new Option("also write a gzipped copy of each page", null, "gzip") {
+          void accept(String arg) {
+            gzip = true;
+          }
+        },
+        new Option("write a search page over all classes and members", null, "search") {
+          void accept(String arg) {
+            search = true;
+          }
+        },
+        new Option("list the callers of each method", null, "xref") {
+          void accept(String arg) {
+            xref = true;
+          }
+        },
+        new Option("write a page of methods over HotSpot's inlining limits", null, "inlining") {
+          void accept(String arg) {
+            inlining = true;
+          }
+        },
+        new Option("write a page of allocation sites and mark them in the code", null, "alloc") {
+          void accept(String arg) {
+            alloc = true;
+          }
+        },
+        new Option(
+            "write a page of calls that may block while holding a monitor", null, "pinning") {
+          void accept(String arg) {
+            pinning = true;
+          }
+        },
+        new Option("only count opcodes and method shapes, into histogram.txt", null, "histogram") {
+          void accept(String arg) {
+            histogram = true;
+          }
+        },
+        new Option("serve pages on this local port, rendering them on demand", "port", "serve") {
+          void accept(String arg) {
+            serve = parsePositive(arg);
+          }
+        },
+        new Option("bytes of rendered pages kept in memory when serving", "bytes", "lru") {
+          void accept(String arg) {
+            lru = parseBytes(arg);
+          }
+        },
+        new Option(
+            "then render classes again as they change in input directories,"
+                + " without updating reports, or links in other pages to classes added or deleted",
+            null,
+            "watch") {
+          void accept(String arg) {
+            watch = true;
+          }
+        },
+        new Option("print time spent in each phase, and the N slowest to render", "N", "stats") {
+          void accept(String arg) {
+            stats = parsePositive(arg);
+          }
+        },
+        new Option(
+            "show the types of locals and stack in methods up to N instructions", "N", "frames") {
+          void accept(String arg) {
+            frames = parsePositive(arg);
+          }
+        },
+        new Option("render in one pass without building instruction trees", null, "visitor") {
+          void accept(String arg) {
+            visitor = true;
+          }
+        },
+        new Option("only render headers and member tables, without code", null, "summary") {
+          void accept(String arg) {
+            summary = true;
+          }
+        },
+        new Option("bytes of class files in flight when streaming", "bytes", "budget") {
+          void accept(String arg) {
+            budget = parseBytes(arg);
+          }
+        },
+        new Option("put methods over N instructions in pages of their own", "N", "page") {
+          void accept(String arg) {
+            page = parsePositive(arg);
+          }
+        },
+        new Option("skip classes unchanged since the run that wrote this file", "file", "cache") {
+          void accept(String arg) {
+            cacheFile = arg;
+          }
+        },
+      };
+
+  // an option that does not apply with another is turned off, with a warning if it was given
+  private static void ignore(boolean given, String option, String with) {
+    if (given) System.err.printf("-%s: ignored with -%s\n", option, with);
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    var start = System.nanoTime();
     Option.parse(OPTIONS, args);
-    var classes = new ArrayList<ClassNode>();
-    for (var file : Option.positionalArgs) {
-      var classReader = new ClassReader(Files.readAllBytes(Path.of(file)));
-      var classNode = new ClassNode(ASM9);
-      classReader.accept(classNode, 0);
-      classes.add(classNode);
+
+    // the other formats print each class whole, as one file or record, with nothing to link,
+    // mark or page, and no reports
+    if (!(printer instanceof HtmlPrinter.Format)) {
+      var with = "format " + format;
+      ignore(site, "site", with);
+      ignore(gzip, "gzip", with);
+      ignore(search, "search", with);
+      ignore(xref, "xref", with);
+      ignore(inlining, "inlining", with);
+      ignore(alloc, "alloc", with);
+      ignore(pinning, "pinning", with);
+      ignore(summary, "summary", with);
+      ignore(page > 0, "page", with);
+      ignore(frames > 0, "frames", with);
+      ignore(visitor, "visitor", with);
+      site = false;
+      gzip = false;
+      search = false;
+      xref = false;
+      inlining = false;
+      alloc = false;
+      pinning = false;
+      summary = false;
+      page = 0;
+      frames = 0;
+      visitor = false;
+    }
+
+    // callers come from every class, but streaming renders a class before the rest are read,
+    // and classes are only indexed when all are read first
+    if (stream) {
+      ignore(xref, "xref", "stream");
+      ignore(inlining, "inlining", "stream");
+      ignore(pinning, "pinning", "stream");
+      xref = false;
+      inlining = false;
+      pinning = false;
+    }
+
+    // a summary needs no code, so there is nothing for the single-pass renderer to do
+    if (summary) {
+      ignore(visitor, "visitor", "summary");
+      ignore(frames > 0, "frames", "summary");
+      visitor = false;
+      frames = 0;
+    }
+
+    // analysis works on instruction trees
+    if (frames > 0 || alloc || pinning) {
+      ignore(visitor, "visitor", frames > 0 ? "frames" : alloc ? "alloc" : "pinning");
+      visitor = false;
+    }
+    if (cacheFile != null) cache = new Cache(Path.of(cacheFile), salt());
+    var paths = Inputs.expand(Option.positionalArgs);
+
+    if (histogram) {
+      Histogram.count(paths);
+      Inputs.close();
+      Stats.print(start);
+      return;
+    }
+
+    // pages are rendered when they are asked for, so the whole input is never written out,
+    // and archives stay open until the server is stopped
+    if (serve > 0) {
+      page = 0;
+      Runtime.getRuntime().addShutdownHook(new Thread(Inputs::close));
+      Server.serve(paths);
+      return;
     }
-    new HtmlPrinter(classes);
+
+    if (stream) {
+      Pipeline.stream(paths);
+      Inputs.close();
+    } else {
+      // reading includes inflating archive entries, so it goes on the worker threads as well
+      record Input(byte[] bytes, ClassReader classReader) {}
+      var inputs =
+          Etc.map(
+              paths,
+              path -> {
+                try {
+                  Stats.start(Stats.Phase.READ);
+                  var bytes = Files.readAllBytes(path);
+                  Stats.end(Stats.Phase.READ, bytes.length);
+                  var classReader = new ClassReader(bytes);
+                  if (alloc) Allocations.source(path, classReader.getClassName());
+                  Stats.start(Stats.Phase.INDEX);
+                  printer.index(classReader);
+                  Stats.end(Stats.Phase.INDEX, 0);
+                  return new Input(bytes, classReader);
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
+                }
+              });
+      Inputs.close();
+
+      // a page links to other classes, so it is only kept if they are the same as well
+      var classes = inputs.stream().map(Input::classReader).toList();
+      if (cache != null) {
+        cache.classes(classes.stream().map(ClassReader::getClassName).toList(), List.of());
+        classes =
+            Etc.map(
+                    inputs,
+                    input -> {
+                      if (!cache.hit(input.bytes)) return input.classReader;
+                      printer.skip(input.classReader);
+                      return null;
+                    })
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+      }
+      printer.print(classes);
+    }
+    printer.close();
+    if (cache != null) cache.close();
+    Stats.print(start);
+    if (watch) Watch.watch(Option.positionalArgs);
+  }
+
+  // whether rows are added to the reports over the whole input, the search page and those of
+  // -inlining, -alloc and -pinning. They are written once at the end of the run, so a server,
+  // which renders pages again and again and has no end, and a watch after the first run,
+  // which renders only what changes, would only add rows that are never written.
+  static boolean report() {
+    return serve == 0 && !watching;
+  }
+
+  // what a page depends on besides the bytes of its class: the program, and the options that
+  // change what is written, but not those that only change how or where the work is done
+  private static String salt() throws IOException {
+    var version = Option.version();
+
+    // without a version, as when run from the build directory, the build stands for it;
+    // the compiler rebuilds every class when any source changes, so Main's time will do
+    if (version == null)
+      version = "built " + Main.class.getResource("Main.class").openConnection().getLastModified();
+    return String.join(
+        " ",
+        version,
+        printer.getClass().getSimpleName(),
+        "site=" + site,
+        "gzip=" + gzip,
+        "page=" + page,
+        "summary=" + summary,
+        "frames=" + frames,
+        "visitor=" + visitor);
+  }
+
+  static ClassNode parse(ClassReader classReader) {
+    Stats.start(Stats.Phase.PARSE);
+    var flags = 0;
+    if (summary) flags = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    var classNode = Code.parse(classReader, flags);
+    Stats.end(Stats.Phase.PARSE, 0);
+    return classNode;
   }
 }
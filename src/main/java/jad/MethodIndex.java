@@ -0,0 +1,127 @@
+package jad;
+
+import org.objectweb.asm.tree.*;
+
+// Facts about a method's code that printers and analyses need, computed once in a few linear
+// passes and kept in int arrays, so that nothing on the way through a large method is boxed
+// or looked up in a map. Arrays are indexed by ordinal, the position of an instruction among
+// the real ones, not counting labels, line numbers and frames. Labels get ids in order of
+// position, counting only those that are branch targets; as in the printed output, a switch's
+// default label does not count unless something else branches to it.
+final class MethodIndex {
+  // position in the instruction list, and opcode, by ordinal
+  final int[] indexes;
+  final int[] opcodes;
+
+  // source line starting at each instruction, or -1
+  final int[] lines;
+
+  // id of the label on each instruction, or -1
+  final int[] labels;
+
+  // ordinal of the instruction each label id is on
+  final int[] labelOrdinals;
+
+  // label ids of the branch targets of instruction k are targets[targetStart[k]]
+  // up to targets[targetStart[k + 1]], the default first for a switch;
+  // -1 for a default label that does not count as used
+  final int[] targetStart;
+  final int[] targets;
+
+  MethodIndex(MethodNode methodNode) {
+    var instructions = methodNode.instructions;
+    var size = instructions.size();
+
+    // which labels are branch targets
+    var used = new boolean[size];
+    var n = 0;
+    var m = 0;
+    for (var abstractInsnNode : instructions) {
+      switch (abstractInsnNode) {
+        case JumpInsnNode a -> {
+          used[instructions.indexOf(a.label)] = true;
+          m++;
+        }
+        case TableSwitchInsnNode a -> {
+          for (var L : a.labels) used[instructions.indexOf(L)] = true;
+          m += 1 + a.labels.size();
+        }
+        case LookupSwitchInsnNode a -> {
+          for (var L : a.labels) used[instructions.indexOf(L)] = true;
+          m += 1 + a.labels.size();
+        }
+        default -> {}
+      }
+      if (abstractInsnNode.getOpcode() >= 0) n++;
+    }
+    var labelCount = 0;
+    for (var b : used) if (b) labelCount++;
+
+    // instructions, lines and labels
+    indexes = new int[n];
+    opcodes = new int[n];
+    lines = new int[n];
+    labels = new int[n];
+    labelOrdinals = new int[labelCount];
+    var ids = new int[size];
+    var k = 0;
+    var line = -1;
+    var label = -1;
+    labelCount = 0;
+    for (var i = 0; i < size; i++) {
+      switch (instructions.get(i)) {
+        case LineNumberNode a -> {
+          assert line < 0;
+          line = a.line;
+          continue;
+        }
+        case LabelNode ignored -> {
+          assert label < 0;
+          label = -1;
+          if (used[i]) {
+            label = labelCount++;
+            labelOrdinals[label] = k;
+          }
+          ids[i] = label;
+          continue;
+        }
+        case FrameNode ignored -> {
+          continue;
+        }
+        default -> {}
+      }
+      indexes[k] = i;
+      opcodes[k] = instructions.get(i).getOpcode();
+      lines[k] = line;
+      labels[k] = label;
+      line = -1;
+      label = -1;
+      k++;
+    }
+
+    // branch targets
+    targetStart = new int[n + 1];
+    targets = new int[m];
+    var j = 0;
+    for (k = 0; k < n; k++) {
+      targetStart[k] = j;
+      switch (instructions.get(indexes[k])) {
+        case JumpInsnNode a -> targets[j++] = ids[instructions.indexOf(a.label)];
+        case TableSwitchInsnNode a -> {
+          targets[j++] = ids[instructions.indexOf(a.dflt)];
+          for (var L : a.labels) targets[j++] = ids[instructions.indexOf(L)];
+        }
+        case LookupSwitchInsnNode a -> {
+          targets[j++] = ids[instructions.indexOf(a.dflt)];
+          for (var L : a.labels) targets[j++] = ids[instructions.indexOf(L)];
+        }
+        default -> {}
+      }
+    }
+    targetStart[n] = j;
+  }
+
+  int size() {
+    return indexes.length;
+  }
+}
@@ -63,6 +63,37 @@ public abstract class Option {
 
   abstract void accept(String arg);
 
+  int parsePositive(String arg) {
+    try {
+      var n = Integer.parseInt(arg);
+      if (n > 0) return n;
+    } catch (NumberFormatException ignored) {
+    }
+    System.err.printf("-%s %s: expected positive integer\n", names[0], arg);
+    System.exit(1);
+    return 0;
+  }
+
+  // a byte count with optional k, m or g suffix
+  int parseBytes(String arg) {
+    var scale = 1L;
+    var s = arg.toLowerCase(Locale.ROOT);
+    switch (s.isEmpty() ? ' ' : s.charAt(s.length() - 1)) {
+      case 'k' -> scale = 1L << 10;
+      case 'm' -> scale = 1L << 20;
+      case 'g' -> scale = 1L << 30;
+    }
+    if (scale > 1) s = s.substring(0, s.length() - 1);
+    try {
+      var n = Long.parseLong(s) * scale;
+      if (0 < n && n <= Integer.MAX_VALUE) return (int) n;
+    } catch (NumberFormatException ignored) {
+    }
+    System.err.printf("-%s %s: expected byte count\n", names[0], arg);
+    System.exit(1);
+    return 0;
+  }
+
   private static Option getOption(Option[] options, String name) {
     for (var option : options) for (var s : option.names) if (s.equals(name)) return option;
     return null;
@@ -87,16 +118,22 @@ public abstract class Option {
           }
         };
     System.arraycopy(options0, 0, options, 2, options0.length);
+    parse(options, Arrays.asList(args).iterator());
+  }
 
-    for (var i = 0; i < args.length; i++) {
-      var s = args[i];
+  private static void parse(Option[] options, Iterator<String> args) throws IOException {
+    while (args.hasNext()) {
+      var s = args.next();
+      if (s.isEmpty()) continue;
       if (parsingOptions)
         switch (s.charAt(0)) {
           case '@' -> {
-            parse(
-                options,
-                Files.readAllLines(Path.of(s.substring(1)), StandardCharsets.UTF_8)
-                    .toArray(new String[0]));
+            // response files can list many thousands of inputs,
+            // so read them a line at a time rather than all at once
+            try (var reader =
+                Files.newBufferedReader(Path.of(s.substring(1)), StandardCharsets.UTF_8)) {
+              parse(options, reader.lines().iterator());
+            }
             continue;
           }
           case '-' -> {
@@ -141,11 +178,12 @@ public abstract class Option {
             }
 
             // still want arg
-            if (i + 1 == args.length) {
+            if (!args.hasNext()) {
               System.err.printf("%s: expected arg\n", s);
               System.exit(1);
             }
-            option.accept(args[++i]);
+            arg = args.next();
+            option.accept(arg);
             continue;
           }
         }
@@ -153,16 +191,15 @@ public abstract class Option {
     }
   }
 
-  private static String version() throws IOException {
-    var properties = new Properties();
-    try (var stream = Main.class.getClassLoader().getResourceAsStream("META-INF/MANIFEST.MF")) {
-      properties.load(stream);
-      return properties.getProperty("Implementation-Version");
-    }
+  // from the manifest of the jar this class was loaded from, not the first one on the class
+  // path, which may belong to a dependency; null when not run from a jar with a version
+  static String version() {
+    return Main.class.getPackage().getImplementationVersion();
   }
 
   private static void printVersion() throws IOException {
-    System.out.printf("JAD %s, %s\n", version(), System.getProperty("java.class.path"));
+    var version = Objects.requireNonNullElse(version(), "(no version)");
+    System.out.printf("JAD %s, %s\n", version, System.getProperty("java.class.path"));
     System.out.printf(
         "%s, %s, %s\n",
         System.getProperty("java.vm.name"),
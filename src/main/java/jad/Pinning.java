@@ -0,0 +1,288 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.text.StringEscapeUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.tree.*;
+
+// Calls that may block while a monitor is held, which pins a virtual thread to its carrier:
+// waiting, sleeping, parking and I/O inside synchronized methods and blocks, and calls to
+// methods elsewhere in the input that do one of those things themselves, one level deep.
+// Which methods block directly is found as classes are indexed, so it is known for every class
+// before any is rendered. Where a monitor is held is found as each method is rendered, by
+// following the monitor depth through branches and exception handlers, since javac's handler
+// that releases a monitor on the way out sits after the code it covers.
+final class Pinning {
+  static final String PAGE = "pinning.html";
+
+  // nesting deeper than this is counted as this, so the analysis always ends
+  private static final int MAX_DEPTH = 16;
+
+  private record Risk(
+      String className,
+      String name,
+      String desc,
+      int offset,
+      String href,
+      boolean method,
+      String call,
+      String via) {}
+
+  // the first call that may block in each method of the input, by owner, name and desc
+  private final Map<String, String> blocking = new ConcurrentHashMap<>();
+
+  private final Queue<Risk> risks = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger methods = new AtomicInteger();
+  private final AtomicInteger blocks = new AtomicInteger();
+
+  // Object.wait is final, so no class can declare another method with its name and desc, and
+  // javac names the class of the receiver as owner; a static call to sleep names the class it
+  // was written against, which may be a subclass of Thread
+  private static final Set<String> WAIT = Set.of("()V", "(J)V", "(JI)V");
+  private static final Set<String> SLEEP = Set.of("(J)V", "(JI)V", "(Ljava/time/Duration;)V");
+
+  // streams, readers, writers and channels that only wrap memory
+  private static final Set<String> MEMORY =
+      Set.of(
+          "ByteArrayInputStream",
+          "ByteArrayOutputStream",
+          "CharArrayReader",
+          "CharArrayWriter",
+          "StringReader",
+          "StringWriter",
+          "StringBufferInputStream");
+
+  // constructors that open files
+  private static final Set<String> OPEN =
+      Set.of("FileInputStream", "FileOutputStream", "RandomAccessFile", "FileReader", "FileWriter");
+
+  private static boolean blocks(int opcode, String owner, String name, String desc) {
+    if (name.equals("wait")) return WAIT.contains(desc);
+    if (name.equals("sleep")) return opcode == INVOKESTATIC && SLEEP.contains(desc);
+    if (owner.equals("java/util/concurrent/locks/LockSupport")) return name.startsWith("park");
+    return io(owner, name);
+  }
+
+  // calls that move data or open files and connections; java/io/File only names files, and
+  // its queries of them are taken not to block
+  private static boolean io(String owner, String name) {
+    if (!owner.startsWith("java/io/") && !owner.startsWith("java/nio/channels/")) return false;
+    var simple = owner.substring(owner.lastIndexOf('/') + 1);
+    if (owner.equals("java/io/File") || MEMORY.contains(simple)) return false;
+    if (simple.endsWith("Exception") || simple.endsWith("Error")) return false;
+    if (name.equals("<init>")) return OPEN.contains(simple);
+    return name.startsWith("read")
+        || name.startsWith("write")
+        || name.startsWith("print")
+        || name.startsWith("transfer")
+        || name.equals("open")
+        || name.equals("flush")
+        || name.equals("append")
+        || name.equals("format")
+        || name.equals("newLine")
+        || name.equals("accept")
+        || name.equals("connect")
+        || name.equals("receive")
+        || name.equals("send")
+        || name.equals("select")
+        || name.equals("force")
+        || name.equals("lock");
+  }
+
+  private static String key(String owner, String name, String desc) {
+    return owner + '.' + name + desc;
+  }
+
+  void add(ClassReader classReader) {
+    var className = classReader.getClassName();
+    classReader.accept(
+        new ClassVisitor(ASM9) {
+          @Override
+          public MethodVisitor visitMethod(
+              int access, String name, String desc, String signature, String[] exceptions) {
+            // a class indexed again after it changed replaces what it had
+            var method = key(className, name, desc);
+            blocking.remove(method);
+            return new MethodVisitor(ASM9) {
+              @Override
+              public void visitMethodInsn(
+                  int opcode, String owner, String name, String desc, boolean isInterface) {
+                if (blocks(opcode, owner, name, desc))
+                  blocking.putIfAbsent(method, key(owner, name, desc));
+              }
+            };
+          }
+        },
+        ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+  }
+
+  private static boolean raise(int[] depths, int k, int depth) {
+    if (k == depths.length || depths[k] >= depth) return false;
+    depths[k] = depth;
+    return true;
+  }
+
+  // the number of monitors held before each instruction by ordinal, or -1 if unreachable
+  private static int[] depths(MethodNode methodNode, MethodIndex index) {
+    var instructions = methodNode.instructions;
+    var n = index.size();
+
+    // ordinal of the first instruction at or after each position in the list
+    var next = new int[instructions.size()];
+    var k = n;
+    for (var i = next.length - 1; i >= 0; i--) {
+      if (instructions.get(i).getOpcode() >= 0) k--;
+      next[i] = k;
+    }
+    var tryCatchBlocks = methodNode.tryCatchBlocks;
+    var handlers = new int[tryCatchBlocks.size() * 3];
+    for (var i = 0; i < tryCatchBlocks.size(); i++) {
+      var tryCatchBlockNode = tryCatchBlocks.get(i);
+      handlers[i * 3] = next[instructions.indexOf(tryCatchBlockNode.start)];
+      handlers[i * 3 + 1] = next[instructions.indexOf(tryCatchBlockNode.end)];
+      handlers[i * 3 + 2] = next[instructions.indexOf(tryCatchBlockNode.handler)];
+    }
+
+    // depths only go up, and are bounded, so passes over the code stop changing them
+    var depths = new int[n];
+    Arrays.fill(depths, -1);
+    depths[0] = 0;
+    for (var changed = true; changed; ) {
+      changed = false;
+      for (k = 0; k < n; k++) {
+        var depth = depths[k];
+        if (depth < 0) continue;
+        var opcode = index.opcodes[k];
+        var out =
+            switch (opcode) {
+              case MONITORENTER -> Math.min(depth + 1, MAX_DEPTH);
+              case MONITOREXIT -> Math.max(depth - 1, 0);
+              default -> depth;
+            };
+
+        // where control goes next
+        switch (instructions.get(index.indexes[k])) {
+          case JumpInsnNode a -> {
+            changed |= raise(depths, next[instructions.indexOf(a.label)], out);
+            if (opcode != GOTO) changed |= raise(depths, k + 1, out);
+          }
+          case TableSwitchInsnNode a -> {
+            changed |= raise(depths, next[instructions.indexOf(a.dflt)], out);
+            for (var label : a.labels)
+              changed |= raise(depths, next[instructions.indexOf(label)], out);
+          }
+          case LookupSwitchInsnNode a -> {
+            changed |= raise(depths, next[instructions.indexOf(a.dflt)], out);
+            for (var label : a.labels)
+              changed |= raise(depths, next[instructions.indexOf(label)], out);
+          }
+          default -> {
+            if (!(IRETURN <= opcode && opcode <= RETURN || opcode == ATHROW || opcode == RET))
+              changed |= raise(depths, k + 1, out);
+          }
+        }
+
+        // an exception leaves with the monitors held before the instruction that threw it
+        for (var i = 0; i < handlers.length; i += 3)
+          if (handlers[i] <= k && k < handlers[i + 1])
+            changed |= raise(depths, handlers[i + 2], depth);
+      }
+    }
+    return depths;
+  }
+
+  // why each instruction may block while holding a monitor, by ordinal, escaped for HTML; null
+  // if none may. page is where the instruction table is, and method the index of the method in
+  // its class, which with the offset makes the ids of rows with reasons.
+  String[] find(
+      String className, MethodNode methodNode, int method, MethodIndex index, String page) {
+    var n = index.size();
+    var sync = (methodNode.access & ACC_SYNCHRONIZED) != 0;
+    var enters = 0;
+    for (var k = 0; k < n; k++) if (index.opcodes[k] == MONITORENTER) enters++;
+    if (n == 0 || !sync && enters == 0) return null;
+
+    var report = Main.report();
+    if (report && sync) methods.incrementAndGet();
+    if (report) blocks.addAndGet(enters);
+
+    var depths = depths(methodNode, index);
+    var offsets = HtmlPrinter.offsets(methodNode);
+    var name = StringEscapeUtils.escapeHtml4(methodNode.name);
+    String[] v = null;
+    for (var k = 0; k < n; k++) {
+      if (depths[k] < 0 || !sync && depths[k] == 0) continue;
+      if (!(methodNode.instructions.get(index.indexes[k]) instanceof MethodInsnNode a)) continue;
+      var call = key(a.owner, a.name, a.desc);
+      String via = null;
+      if (!blocks(a.getOpcode(), a.owner, a.name, a.desc)) {
+        via = call;
+        call = blocking.get(call);
+        if (call == null) continue;
+      }
+
+      if (v == null) v = new String[n];
+      var s = "may block: " + (via == null ? call : "calls " + via + ", which calls " + call);
+      v[k] = StringEscapeUtils.escapeHtml4(s);
+      if (!report) continue;
+      var offset = offsets == null ? k : offsets[k];
+      var href = page + '#' + HtmlPrinter.id(name, method, offset);
+      var whole = sync && depths[k] == 0;
+      risks.add(
+          new Risk(className, methodNode.name, methodNode.desc, offset, href, whole, call, via));
+    }
+    return v;
+  }
+
+  void write() throws IOException {
+    var v = new ArrayList<>(risks);
+    v.sort(
+        Comparator.comparing(Risk::className)
+            .thenComparing(Risk::name)
+            .thenComparing(Risk::desc)
+            .thenComparingInt(Risk::offset));
+
+    var sb = new StringBuilder();
+    sb.append(HtmlPrinter.reportHead("Pinning"));
+    sb.append("<p>").append(methods).append(" synchronized methods, ");
+    sb.append(blocks).append(" synchronized blocks, ");
+    sb.append(v.size()).append(" calls in them that may block\n");
+    sb.append("<table>\n");
+    sb.append("<tr>\n");
+    sb.append("<th>Class\n");
+    sb.append("<th>Method\n");
+    sb.append("<th>Offset\n");
+    sb.append("<th>Monitor\n");
+    sb.append("<th>Blocking call\n");
+    sb.append("<th>Through\n");
+    for (var risk : v) {
+      sb.append("<tr>\n");
+      sb.append("<td><a href=\"").append(HtmlPrinter.file(risk.className)).append("\">");
+      sb.append(risk.className).append("</a>\n");
+      sb.append("<td>").append(StringEscapeUtils.escapeHtml4(risk.name + risk.desc)).append('\n');
+      sb.append("<td><a href=\"").append(risk.href).append("\">");
+      sb.append(risk.offset).append("</a>\n");
+      sb.append("<td>").append(risk.method ? "method" : "block").append('\n');
+      sb.append("<td>").append(StringEscapeUtils.escapeHtml4(risk.call)).append('\n');
+      sb.append("<td>");
+      if (risk.via != null) sb.append(StringEscapeUtils.escapeHtml4(risk.via));
+      sb.append('\n');
+    }
+    sb.append("</table>\n");
+    sb.append(HtmlPrinter.SORTABLE);
+
+    Files.writeString(Path.of(PAGE), sb, StandardCharsets.UTF_8);
+    if (Main.gzip) Etc.gzip(PAGE);
+  }
+}
@@ -0,0 +1,160 @@
+package jad;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+// Streams classes through read, parse and render stages connected by bounded queues.
+// Each class is dropped as soon as its page is written, so memory depends on the number
+// of classes in flight rather than the total. If two inputs define the same class, the last one
+// wins, as in a batch run; renders of a class are taken one at a time, and one that an input
+// read since has replaced is dropped.
+final class Pipeline {
+  private static final class Item {
+    final int permits;
+    byte[] bytes;
+    ClassReader classReader;
+    ClassNode classNode;
+
+    // this item's position in the input, and that of the last input read with its class
+    final int i;
+    final int[] last;
+
+    Item(int permits, byte[] bytes, int i, int[] last) {
+      this.permits = permits;
+      this.bytes = bytes;
+      this.i = i;
+      this.last = last;
+    }
+  }
+
+  private static final Item END = new Item(0, null, 0, null);
+
+  private final Semaphore budget = new Semaphore(Main.budget);
+  private final BlockingQueue<Item> parseQueue = new ArrayBlockingQueue<>(Main.threads * 2);
+  private final BlockingQueue<Item> renderQueue = new ArrayBlockingQueue<>(Main.threads * 2);
+  private final Thread reader = Thread.currentThread();
+
+  // by class name; only the names are kept, not the classes
+  private final Map<String, int[]> last = new HashMap<>();
+  private volatile Throwable error;
+
+  private void parse() throws InterruptedException {
+    for (; ; ) {
+      var item = parseQueue.take();
+      if (item == END) return;
+      item.classReader = new ClassReader(item.bytes);
+      item.bytes = null;
+      if (!Main.visitor) {
+        item.classNode = Main.parse(item.classReader);
+        item.classReader = null;
+      }
+      renderQueue.put(item);
+    }
+  }
+
+  private void render() throws InterruptedException, IOException {
+    for (; ; ) {
+      var item = renderQueue.take();
+      if (item == END) return;
+      synchronized (item.last) {
+        // unless an input read since defines the same class
+        if (item.last[0] == item.i) render(item);
+      }
+      budget.release(item.permits);
+    }
+  }
+
+  private static void render(Item item) throws IOException {
+    if (item.classNode != null) Main.printer.render(item.classNode);
+    else Main.printer.render(item.classReader);
+  }
+
+  private interface Stage {
+    void run() throws Exception;
+  }
+
+  private Future<?> start(ExecutorService executor, Stage stage) {
+    return executor.submit(
+        () -> {
+          try {
+            stage.run();
+          } catch (Throwable e) {
+            // wake the reader, which may be blocked waiting for budget or queue space
+            error = e;
+            reader.interrupt();
+          }
+        });
+  }
+
+  private void run(List<Path> paths) throws IOException, InterruptedException {
+    var executor = Executors.newFixedThreadPool(Main.threads * 2);
+    try {
+      var parsers = new ArrayList<Future<?>>();
+      var renderers = new ArrayList<Future<?>>();
+      for (var i = 0; i < Main.threads; i++) {
+        parsers.add(start(executor, this::parse));
+        renderers.add(start(executor, this::render));
+      }
+
+      for (var i = 0; i < paths.size(); i++) {
+        var path = paths.get(i);
+        Stats.start(Stats.Phase.READ);
+        var bytes = Files.readAllBytes(path);
+        Stats.end(Stats.Phase.READ, bytes.length);
+        var className = new ClassReader(bytes).getClassName();
+        if (Main.alloc) Allocations.source(path, className);
+
+        // a class read again replaces what was read before, whether rendered yet or not
+        var seen = last.containsKey(className);
+        var v = last.computeIfAbsent(className, k -> new int[1]);
+        synchronized (v) {
+          v[0] = i;
+        }
+        if (!seen && Main.cache != null && Main.cache.hit(bytes)) {
+          Main.printer.skip(new ClassReader(bytes));
+          continue;
+        }
+
+        // a class bigger than the whole budget is let through on its own
+        var permits = Math.min(bytes.length, Main.budget);
+        budget.acquire(permits);
+        parseQueue.put(new Item(permits, bytes, i, v));
+      }
+
+      for (var parser : parsers) parseQueue.put(END);
+      for (var parser : parsers) parser.get();
+      for (var renderer : renderers) renderQueue.put(END);
+      for (var renderer : renderers) renderer.get();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void rethrow(Throwable e) throws IOException {
+    if (e instanceof IOException a) throw a;
+    if (e instanceof RuntimeException a) throw a;
+    if (e instanceof Error a) throw a;
+    throw new RuntimeException(e);
+  }
+
+  static void stream(List<Path> paths) throws IOException {
+    var pipeline = new Pipeline();
+    try {
+      pipeline.run(paths);
+    } catch (Exception e) {
+      // the reader is interrupted when a stage fails, which it may see as an error of its own,
+      // such as ClosedByInterruptException from a read, so what the stage threw comes first
+      if (pipeline.error == null) rethrow(e);
+    } finally {
+      Thread.interrupted();
+    }
+    if (pipeline.error != null) rethrow(pipeline.error);
+  }
+}
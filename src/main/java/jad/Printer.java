@@ -0,0 +1,70 @@
+package jad;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+
+// An output format. Classes are handed over on worker threads, several at once,
+// so anything a format shares between classes must be thread-safe.
+abstract class Printer {
+  static Printer of(String format) {
+    return switch (format) {
+      case "html" -> new HtmlPrinter.Format();
+      case "text" -> new TextPrinter();
+      case "ndjson" -> new JsonPrinter();
+      default -> null;
+    };
+  }
+
+  // the file a class is written to, or null if the format writes one stream for the whole run
+  abstract String file(String className);
+
+  // called with every class read, before any is printed and including those the cache skips,
+  // for formats that refer from one class to another
+  void index(ClassReader classReader) {}
+
+  // called when a class has been deleted, or before it is indexed again after it changed
+  void forget(String className) {}
+
+  // called instead of print for a class whose output from an earlier run is kept
+  void skip(ClassReader classReader) {}
+
+  abstract void print(ClassNode classNode) throws IOException;
+
+  void print(ClassReader classReader) throws IOException {
+    print(Main.parse(classReader));
+  }
+
+  // print, timed for -stats and as a JFR event
+  final void render(ClassReader classReader) throws IOException {
+    Stats.render(classReader.getClassName(), () -> print(classReader));
+  }
+
+  final void render(ClassNode classNode) throws IOException {
+    Stats.render(classNode.name, () -> print(classNode));
+  }
+
+  void print(Collection<ClassReader> classes) {
+    // if two inputs define the same class, the last one wins,
+    // as it would if the classes were printed one after another
+    var pages = new LinkedHashMap<String, ClassReader>();
+    for (var classReader : classes) pages.put(classReader.getClassName(), classReader);
+
+    // classes are parsed as they are printed,
+    // so only the class files need be held in memory, not the trees
+    Etc.parallel(
+        new ArrayList<>(pages.values()),
+        classReader -> {
+          try {
+            render(classReader);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+
+  void close() throws IOException {}
+}
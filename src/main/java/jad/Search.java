@@ -0,0 +1,224 @@
+package jad;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.objectweb.asm.tree.ClassNode;
+
+// Index of every class, field and method, collected as pages are rendered and written at the
+// end of the run as a script that a static search page loads, so searching needs no server.
+// Names are looked up by trigram, each trigram mapping to the ids of the entries whose names
+// contain it, delta-encoded; a query under three characters is a prefix search instead, over
+// entries sorted by name. Further words in a query narrow the results by class and descriptor.
+final class Search {
+  static final String PAGE = "search.html";
+  private static final String DATA = "search.js";
+
+  private static final int CLASS = 0;
+  private static final int FIELD = 1;
+  private static final int METHOD = 2;
+
+  // key is the name in lower case, which is what queries are matched against
+  private record Entry(String key, int kind, String name, String desc, String className) {}
+
+  private static final Comparator<Entry> ORDER =
+      Comparator.comparing(Entry::key)
+          .thenComparingInt(Entry::kind)
+          .thenComparing(Entry::name)
+          .thenComparing(Entry::className)
+          .thenComparing(Entry::desc);
+
+  private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+  void add(ClassNode classNode) {
+    var className = classNode.name;
+    entries.add(new Entry(className.toLowerCase(Locale.ROOT), CLASS, className, "", className));
+    for (var fieldNode : classNode.fields)
+      entries.add(
+          new Entry(
+              fieldNode.name.toLowerCase(Locale.ROOT),
+              FIELD,
+              fieldNode.name,
+              fieldNode.desc,
+              className));
+    for (var methodNode : classNode.methods)
+      entries.add(
+          new Entry(
+              methodNode.name.toLowerCase(Locale.ROOT),
+              METHOD,
+              methodNode.name,
+              methodNode.desc,
+              className));
+  }
+
+  void write() throws IOException {
+    var v = new ArrayList<>(entries);
+    v.sort(ORDER);
+
+    // class names are shared by all the members of a class, so they are listed once
+    var classes = new TreeMap<String, Integer>();
+    for (var e : v) classes.put(e.className, 0);
+    var i = 0;
+    for (var k : classes.keySet()) classes.put(k, i++);
+
+    var trigrams = new TreeMap<String, List<Integer>>();
+    for (i = 0; i < v.size(); i++) {
+      var key = v.get(i).key;
+      for (var j = 0; j + 3 <= key.length(); j++) {
+        var ids = trigrams.computeIfAbsent(key.substring(j, j + 3), k -> new ArrayList<>());
+        if (ids.isEmpty() || ids.get(ids.size() - 1) != i) ids.add(i);
+      }
+    }
+
+    var sb = new StringBuilder();
+    sb.append("var jadSearch = {\n");
+
+    sb.append("classes: [");
+    var more = false;
+    for (var s : classes.keySet()) {
+      if (more) sb.append(',');
+      more = true;
+      Etc.json(sb, s);
+    }
+    sb.append("],\n");
+
+    // kind, name, descriptor, class
+    sb.append("entries: [");
+    more = false;
+    for (var e : v) {
+      if (more) sb.append(',');
+      more = true;
+      sb.append('[').append(e.kind).append(',');
+      Etc.json(sb, e.name);
+      sb.append(',');
+      Etc.json(sb, e.desc);
+      sb.append(',').append(classes.get(e.className)).append(']');
+    }
+    sb.append("],\n");
+
+    sb.append("trigrams: {");
+    more = false;
+    for (var kv : trigrams.entrySet()) {
+      if (more) sb.append(',');
+      more = true;
+      Etc.json(sb, kv.getKey());
+      sb.append(":[");
+      var last = 0;
+      for (var j = 0; j < kv.getValue().size(); j++) {
+        if (j > 0) sb.append(',');
+        var id = kv.getValue().get(j);
+        sb.append(id - last);
+        last = id;
+      }
+      sb.append(']');
+    }
+    sb.append("}\n");
+
+    sb.append("};\n");
+    Files.writeString(Path.of(DATA), sb, StandardCharsets.UTF_8);
+    Files.writeString(Path.of(PAGE), PAGE_TEXT, StandardCharsets.UTF_8);
+    if (Main.gzip) {
+      Etc.gzip(DATA);
+      Etc.gzip(PAGE);
+    }
+  }
+
+  private static final String PAGE_TEXT =
+      """
+      <!DOCTYPE html>
+      <html lang="en">
+      <meta charset="utf-8"/>
+      <title>Search</title>
+      <style>
+      html * {
+      font-family: "Verdana";
+      }
+      td {
+      padding-left: 4px;
+      padding-right: 4px;
+      }
+      </style>
+      <script src="search.js"></script>
+      <input id="query" size="60" autofocus placeholder="name, then words from class or descriptor">
+      <p id="count"></p>
+      <table id="results"></table>
+      <script>
+      var kinds = ["class", "field", "method"];
+      var limit = 500;
+
+      function key(i) {
+        return jadSearch.entries[i][1].toLowerCase();
+      }
+
+      // ids of entries whose names contain s
+      function lookup(s) {
+        var ids = [];
+        if (s.length < 3) {
+          var lo = 0, hi = jadSearch.entries.length;
+          while (lo < hi) {
+            var mid = (lo + hi) >> 1;
+            if (key(mid) < s) lo = mid + 1;
+            else hi = mid;
+          }
+          for (var i = lo; i < jadSearch.entries.length && key(i).startsWith(s); i++) ids.push(i);
+          return ids;
+        }
+        var lists = [];
+        for (var j = 0; j + 3 <= s.length; j++) {
+          var v = jadSearch.trigrams[s.substring(j, j + 3)];
+          if (!v) return ids;
+          lists.push(v);
+        }
+        lists.sort(function (a, b) { return a.length - b.length; });
+        var sets = lists.slice(1).map(function (v) {
+          var set = new Set(), id = 0;
+          for (var d of v) set.add(id += d);
+          return set;
+        });
+        var id = 0;
+        for (var d of lists[0]) {
+          id += d;
+          if (sets.every(function (set) { return set.has(id); }) && key(id).includes(s)) ids.push(id);
+        }
+        return ids;
+      }
+
+      function page(className) {
+        return className.replace(/\\//g, "-") + ".html";
+      }
+
+      function search() {
+        var words = document.getElementById("query").value.trim().toLowerCase().split(/\\s+/);
+        var results = document.getElementById("results");
+        results.textContent = "";
+        if (!words[0]) {
+          document.getElementById("count").textContent = "";
+          return;
+        }
+        var n = 0;
+        for (var id of lookup(words[0])) {
+          var e = jadSearch.entries[id];
+          var className = jadSearch.classes[e[3]];
+          var rest = (className + " " + e[2]).toLowerCase();
+          if (!words.slice(1).every(function (w) { return rest.includes(w); })) continue;
+          if (n++ >= limit) continue;
+          var a = document.createElement("a");
+          a.href = page(className) + (e[0] ? "#" + encodeURIComponent(e[1]) : "");
+          a.textContent = e[1];
+          var tr = results.insertRow();
+          tr.insertCell().textContent = kinds[e[0]];
+          tr.insertCell().appendChild(a);
+          tr.insertCell().textContent = e[0] ? className : "";
+          tr.insertCell().textContent = e[2];
+        }
+        document.getElementById("count").textContent =
+            n > limit ? n + " results, showing " + limit : n + " results";
+      }
+
+      document.getElementById("query").addEventListener("input", search);
+      </script>
+      """;
+}
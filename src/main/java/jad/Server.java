@@ -0,0 +1,141 @@
+package jad;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import org.apache.commons.text.StringEscapeUtils;
+import org.objectweb.asm.ClassReader;
+
+// Serves pages over HTTP on the local machine, rendering each class only when its page is
+// asked for. Startup reads every class once, for its name and the indexes that links come
+// from, but keeps only the path to it; rendered pages are kept in a cache of bounded size,
+// least recently used first out.
+final class Server {
+  private final HtmlPrinter.Format format;
+
+  // page file names to the class files they are rendered from
+  private final Map<String, Path> paths = new HashMap<>();
+  private final byte[] index;
+
+  private final LinkedHashMap<String, byte[]> pages = new LinkedHashMap<>(16, 0.75f, true);
+  private long size;
+
+  private Server(HtmlPrinter.Format format, List<Path> paths) {
+    this.format = format;
+    var classNames =
+        Etc.map(
+            paths,
+            path -> {
+              try {
+                var classReader = new ClassReader(Files.readAllBytes(path));
+                format.index(classReader);
+                return classReader.getClassName();
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    format.freeze();
+
+    // if two inputs define the same class, the last one wins, as when writing files
+    var sorted = new TreeMap<String, String>();
+    for (var i = 0; i < paths.size(); i++) {
+      var page = HtmlPrinter.file(classNames.get(i));
+      this.paths.put(page, paths.get(i));
+      sorted.put(classNames.get(i), page);
+    }
+
+    var sb = new StringBuilder();
+    sb.append("<!DOCTYPE html>\n");
+    sb.append("<html lang=\"en\">\n");
+    sb.append("<meta charset=\"utf-8\"/>\n");
+    sb.append("<title>Classes</title>\n");
+    sb.append("<ul>\n");
+    for (var kv : sorted.entrySet()) {
+      sb.append("<li><a href=\"").append(kv.getValue()).append("\">");
+      sb.append(StringEscapeUtils.escapeHtml4(kv.getKey())).append("</a>\n");
+    }
+    sb.append("</ul>\n");
+    index = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private byte[] page(String page) throws IOException {
+    synchronized (pages) {
+      var bytes = pages.get(page);
+      if (bytes != null) return bytes;
+    }
+
+    // two requests for the same page may both render it; that costs less
+    // than making every request wait on whichever page is being rendered
+    var path = paths.get(page);
+    if (path == null) return null;
+    var bytes = format.page(new ClassReader(Files.readAllBytes(path)));
+
+    synchronized (pages) {
+      if (pages.put(page, bytes) == null) size += bytes.length;
+      for (var i = pages.values().iterator(); size > Main.lru && pages.size() > 1; ) {
+        size -= i.next().length;
+        i.remove();
+      }
+    }
+    return bytes;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      var method = exchange.getRequestMethod();
+      if (!method.equals("GET") && !method.equals("HEAD")) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      var name = exchange.getRequestURI().getPath().substring(1);
+      byte[] bytes;
+      var type = "text/html; charset=utf-8";
+      if (name.isEmpty() || name.equals("index.html")) bytes = index;
+      else if (name.equals(HtmlPrinter.STYLESHEET)) {
+        bytes = HtmlPrinter.style().getBytes(StandardCharsets.UTF_8);
+        type = "text/css; charset=utf-8";
+      } else bytes = page(name);
+      if (bytes == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      exchange.getResponseHeaders().set("Content-Type", type);
+      if (method.equals("HEAD")) {
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, bytes.length);
+      exchange.getResponseBody().write(bytes);
+    } catch (RuntimeException e) {
+      // the server would otherwise drop the connection without saying why
+      e.printStackTrace();
+      throw e;
+    } finally {
+      exchange.close();
+    }
+  }
+
+  static void serve(List<Path> paths) throws IOException {
+    if (!(Main.printer instanceof HtmlPrinter.Format format)) {
+      System.err.println("-serve only serves HTML");
+      System.exit(1);
+      return;
+    }
+    var server = new Server(format, paths);
+    var httpServer = HttpServer.create(new InetSocketAddress("localhost", Main.serve), 0);
+    httpServer.createContext("/", server::handle);
+    httpServer.setExecutor(Executors.newFixedThreadPool(Main.threads));
+    httpServer.start();
+    System.out.printf(
+        "serving %d classes on http://localhost:%d/\n",
+        server.paths.size(), httpServer.getAddress().getPort());
+  }
+}
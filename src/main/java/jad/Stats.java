@@ -0,0 +1,224 @@
+package jad;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import jdk.jfr.*;
+import org.objectweb.asm.tree.MethodNode;
+
+// Where the time goes, for -stats: the time, bytes and allocation of each phase, counted per
+// thread so the workers share nothing until the end, and the slowest classes and methods to
+// render. Parsing done in the course of rendering a class is counted as parsing, not rendering.
+// Rendering each class and method is also a JFR event, recorded whenever a flight recording
+// is running, with or without -stats.
+final class Stats {
+  enum Phase {
+    READ,
+    INDEX,
+    PARSE,
+    RENDER
+  }
+
+  @Name("jad.Class")
+  @Label("Render Class")
+  @Category("jad")
+  static final class ClassEvent extends Event {
+    @Label("Class")
+    String className;
+
+    @Label("Output")
+    @DataAmount
+    long bytes;
+  }
+
+  @Name("jad.Method")
+  @Label("Render Method")
+  @Category("jad")
+  static final class MethodEvent extends Event {
+    @Label("Class")
+    String className;
+
+    @Label("Method")
+    String method;
+
+    @Label("Instructions")
+    int instructions;
+  }
+
+  interface Render {
+    void run() throws IOException;
+  }
+
+  private record Entry(long nanos, String name) {}
+
+  // the n slowest of whatever is added
+  private static final class Slowest {
+    private final PriorityQueue<Entry> queue =
+        new PriorityQueue<>(Comparator.comparingLong(Entry::nanos));
+
+    synchronized void add(long nanos, String name, String member) {
+      if (queue.size() == Main.stats && nanos <= queue.peek().nanos) return;
+      queue.add(new Entry(nanos, member == null ? name : name + '.' + member));
+      if (queue.size() > Main.stats) queue.poll();
+    }
+
+    List<Entry> list() {
+      var v = new ArrayList<>(queue);
+      v.sort(Comparator.comparingLong(Entry::nanos).reversed());
+      return v;
+    }
+  }
+
+  // for each phase: count, nanoseconds, bytes, bytes allocated, and the clock, allocation and
+  // nested totals when it started; then the totals of all phases ended on the thread, which
+  // are what a phase subtracts for those nested in it
+  private static final int COUNT = 0;
+  private static final int NANOS = 1;
+  private static final int BYTES = 2;
+  private static final int ALLOCATED = 3;
+  private static final int START = 4;
+  private static final int SLOTS = 8;
+  private static final int NESTED = Phase.values().length * SLOTS;
+
+  private static final Queue<long[]> rows = new ConcurrentLinkedQueue<>();
+  private static final ThreadLocal<long[]> row =
+      ThreadLocal.withInitial(
+          () -> {
+            var v = new long[NESTED + 2];
+            rows.add(v);
+            return v;
+          });
+
+  private static final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static final Slowest classes = new Slowest();
+  private static final Slowest methods = new Slowest();
+
+  private Stats() {}
+
+  private static long allocated() {
+    return threads.getCurrentThreadAllocatedBytes();
+  }
+
+  static void start(Phase phase) {
+    if (Main.stats == 0) return;
+    var v = row.get();
+    var i = phase.ordinal() * SLOTS + START;
+    v[i] = System.nanoTime();
+    v[i + 1] = allocated();
+    v[i + 2] = v[NESTED];
+    v[i + 3] = v[NESTED + 1];
+  }
+
+  // returns the time since the start, including nested phases
+  static long end(Phase phase, long bytes) {
+    if (Main.stats == 0) return 0;
+    var v = row.get();
+    var i = phase.ordinal() * SLOTS;
+    var nanos = System.nanoTime() - v[i + START];
+    var allocated = allocated() - v[i + START + 1];
+    v[i + COUNT]++;
+    v[i + NANOS] += nanos - (v[NESTED] - v[i + START + 2]);
+    v[i + BYTES] += bytes;
+    v[i + ALLOCATED] += allocated - (v[NESTED + 1] - v[i + START + 3]);
+    v[NESTED] += nanos;
+    v[NESTED + 1] += allocated;
+    return nanos;
+  }
+
+  // output written on this thread, counted against the class being rendered
+  static void wrote(long bytes) {
+    row.get()[Phase.RENDER.ordinal() * SLOTS + BYTES] += bytes;
+  }
+
+  static void render(String className, Render render) throws IOException {
+    var event = new ClassEvent();
+    event.begin();
+    var v = row.get();
+    var bytes = v[Phase.RENDER.ordinal() * SLOTS + BYTES];
+    start(Phase.RENDER);
+    render.run();
+    var nanos = end(Phase.RENDER, 0);
+    event.end();
+    if (Main.stats > 0) classes.add(nanos, className, null);
+    if (event.shouldCommit()) {
+      event.className = className;
+      event.bytes = v[Phase.RENDER.ordinal() * SLOTS + BYTES] - bytes;
+      event.commit();
+    }
+  }
+
+  static void method(Render render, String className, MethodNode methodNode, int n)
+      throws IOException {
+    var timer = new Timer();
+    render.run();
+    timer.end(className, methodNode, n);
+  }
+
+  // a method rendered over several calls, as by a visitor, timed from when this is made
+  static final class Timer {
+    private final MethodEvent event = new MethodEvent();
+    private final long start;
+
+    Timer() {
+      event.begin();
+      start = System.nanoTime();
+    }
+
+    void end(String className, MethodNode methodNode, int n) {
+      event.end();
+      if (Main.stats > 0)
+        methods.add(System.nanoTime() - start, className, methodNode.name + methodNode.desc);
+      if (event.shouldCommit()) {
+        event.className = className;
+        event.method = methodNode.name + methodNode.desc;
+        event.instructions = n;
+        event.commit();
+      }
+    }
+  }
+
+  private static String mb(long bytes) {
+    return String.format("%.1f", bytes / 1e6);
+  }
+
+  // phase times are summed over threads, so with several they add up to more than the run
+  static void print(long start) {
+    if (Main.stats == 0) return;
+    var wall = System.nanoTime() - start;
+    var total = new long[NESTED];
+    for (var v : rows) for (var i = 0; i < NESTED; i++) total[i] += v[i];
+
+    var err = System.err;
+    err.printf(
+        "%-8s%10s%10s%10s%10s%12s%14s\n",
+        "phase", "classes", "ms", "MB", "MB/s", "classes/s", "allocated MB");
+    for (var phase : Phase.values()) {
+      var i = phase.ordinal() * SLOTS;
+      var seconds = Math.max(total[i + NANOS], 1) / 1e9;
+      err.printf(
+          "%-8s%10d%10d%10s%10s%12.0f%14s\n",
+          phase.name().toLowerCase(Locale.ROOT),
+          total[i + COUNT],
+          total[i + NANOS] / 1_000_000,
+          mb(total[i + BYTES]),
+          mb((long) (total[i + BYTES] / seconds)),
+          total[i + COUNT] / seconds,
+          mb(total[i + ALLOCATED]));
+    }
+    var read = Phase.READ.ordinal() * SLOTS;
+    var seconds = wall / 1e9;
+    err.printf(
+        "wall %d ms, %.0f classes/s, %s MB/s read\n",
+        wall / 1_000_000,
+        total[read + COUNT] / seconds,
+        mb((long) (total[read + BYTES] / seconds)));
+
+    err.printf("slowest classes\n");
+    for (var entry : classes.list()) err.printf("%10.3f ms  %s\n", entry.nanos / 1e6, entry.name);
+    err.printf("slowest methods\n");
+    for (var entry : methods.list()) err.printf("%10.3f ms  %s\n", entry.nanos / 1e6, entry.name);
+  }
+}
@@ -0,0 +1,73 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+// Every input class and the members it declares, so references to them can be links.
+// Filled concurrently as classes are read, then only read while pages are rendered;
+// lookups take the strings as they come from the class file and build nothing.
+final class Symbols {
+  // members map a name to its descriptors, so a lookup need not join the two
+  record Entry(String page, Map<String, Set<String>> members) {
+    boolean declares(String name, String desc) {
+      var descs = members.get(name);
+      return descs != null && descs.contains(desc);
+    }
+  }
+
+  private final Map<String, Entry> classes = new ConcurrentHashMap<>();
+
+  // only the member declarations are read; code, debug info and frames are skipped
+  void add(ClassReader classReader) {
+    var members = new HashMap<String, Set<String>>();
+    classReader.accept(
+        new ClassVisitor(ASM9) {
+          @Override
+          public FieldVisitor visitField(
+              int access, String name, String descriptor, String signature, Object value) {
+            members.computeIfAbsent(name, k -> new HashSet<>()).add(descriptor);
+            return null;
+          }
+
+          @Override
+          public MethodVisitor visitMethod(
+              int access, String name, String descriptor, String signature, String[] exceptions) {
+            members.computeIfAbsent(name, k -> new HashSet<>()).add(descriptor);
+            return null;
+          }
+        },
+        ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+    // if two inputs define the same class, link to the union of their members,
+    // so the result does not depend on which thread got there first
+    var className = classReader.getClassName();
+    classes.merge(
+        className,
+        new Entry(HtmlPrinter.file(className), members),
+        (a, b) -> {
+          var union = new HashMap<String, Set<String>>();
+          for (var entry : List.of(a, b))
+            entry.members.forEach(
+                (name, descs) -> union.computeIfAbsent(name, k -> new HashSet<>()).addAll(descs));
+          return new Entry(a.page, union);
+        });
+  }
+
+  void remove(String className) {
+    classes.remove(className);
+  }
+
+  Entry get(String className) {
+    return classes.get(className);
+  }
+}
@@ -0,0 +1,141 @@
+package jad;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.reflect.Modifier;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+// Compact plain text in the manner of javap -c, one file per class
+final class TextPrinter extends Printer {
+  @Override
+  String file(String className) {
+    return className.replace('/', '-') + ".txt";
+  }
+
+  private static void modifiers(PrintWriter writer, int access, int mask) {
+    var s = Modifier.toString(access & mask);
+    if (s.isEmpty()) return;
+    writer.print(s);
+    writer.print(' ');
+  }
+
+  private static void label(PrintWriter writer, int label) {
+    if (label < 0) writer.print("null");
+    else {
+      writer.print('L');
+      writer.print(label);
+    }
+  }
+
+  private static void targets(PrintWriter writer, MethodIndex index, int k) {
+    for (var j = index.targetStart[k]; j < index.targetStart[k + 1]; j++) {
+      writer.print(' ');
+      label(writer, index.targets[j]);
+    }
+  }
+
+  private static void print(PrintWriter writer, MethodNode methodNode) {
+    writer.print('\n');
+    modifiers(writer, methodNode.access, Modifier.methodModifiers());
+    writer.print(Type.getReturnType(methodNode.desc).getClassName());
+    writer.print(' ');
+    writer.print(methodNode.name);
+    writer.print('(');
+    var more = false;
+    for (var type : Type.getArgumentTypes(methodNode.desc)) {
+      if (more) writer.print(", ");
+      more = true;
+      writer.print(type.getClassName());
+    }
+    writer.print(')');
+    if (Etc.some(methodNode.exceptions)) {
+      writer.print(" throws ");
+      writer.print(String.join(", ", methodNode.exceptions));
+    }
+    writer.print('\n');
+
+    writer.printf("  descriptor: %s\n", methodNode.desc);
+    writer.printf("  flags: 0x%x\n", methodNode.access);
+    if (methodNode.signature != null) writer.printf("  signature: %s\n", methodNode.signature);
+    if (methodNode.instructions.size() == 0) return;
+    writer.printf("  stack: %d, locals: %d\n", methodNode.maxStack, methodNode.maxLocals);
+
+    var index = new MethodIndex(methodNode);
+    for (var k = 0; k < index.size(); k++) {
+      if (index.lines[k] >= 0) writer.printf("    // line %d\n", index.lines[k]);
+      if (index.labels[k] >= 0) {
+        writer.print("  ");
+        label(writer, index.labels[k]);
+        writer.print(":\n");
+      }
+
+      var abstractInsnNode = methodNode.instructions.get(index.indexes[k]);
+      writer.print("    ");
+      writer.print(Etc.mnemonics[abstractInsnNode.getOpcode()]);
+      switch (abstractInsnNode) {
+        case InsnNode ignored -> {}
+        case IntInsnNode a -> writer.print(" " + a.operand);
+        case VarInsnNode a -> writer.print(" %" + a.var);
+        case TypeInsnNode a -> writer.print(" " + a.desc);
+        case FieldInsnNode a -> writer.printf(" %s.%s %s", a.owner, a.name, a.desc);
+        case MethodInsnNode a -> writer.printf(" %s.%s %s", a.owner, a.name, a.desc);
+        case InvokeDynamicInsnNode a -> writer.printf(
+            " %s %s %s.%s", a.name, a.desc, a.bsm.getOwner(), a.bsm.getName());
+        case JumpInsnNode ignored -> targets(writer, index, k);
+        case LdcInsnNode a -> writer.print(" " + Etc.quote(a.cst));
+        case IincInsnNode a -> writer.printf(" %%%d %d", a.var, a.incr);
+        case TableSwitchInsnNode a -> {
+          writer.printf(" %d %d", a.min, a.max);
+          targets(writer, index, k);
+        }
+        case LookupSwitchInsnNode ignored -> targets(writer, index, k);
+        case MultiANewArrayInsnNode a -> writer.printf(" %s %d", a.desc, a.dims);
+        default -> throw new IllegalArgumentException(Integer.toString(abstractInsnNode.getType()));
+      }
+      writer.print('\n');
+    }
+  }
+
+  private static void print(PrintWriter writer, FieldNode fieldNode) {
+    writer.print('\n');
+    modifiers(writer, fieldNode.access, Modifier.fieldModifiers());
+    writer.print(Type.getType(fieldNode.desc).getClassName());
+    writer.print(' ');
+    writer.print(fieldNode.name);
+    if (fieldNode.value != null) writer.print(" = " + Etc.quote(fieldNode.value));
+    writer.print('\n');
+
+    writer.printf("  descriptor: %s\n", fieldNode.desc);
+    writer.printf("  flags: 0x%x\n", fieldNode.access);
+    if (fieldNode.signature != null) writer.printf("  signature: %s\n", fieldNode.signature);
+  }
+
+  @Override
+  void print(ClassNode classNode) throws FileNotFoundException {
+    try (var writer = new PrintWriter(file(classNode.name))) {
+      modifiers(writer, classNode.access, Modifier.classModifiers());
+      writer.print((classNode.access & ACC_INTERFACE) != 0 ? "interface " : "class ");
+      writer.print(classNode.name);
+      if (classNode.superName != null && !classNode.superName.equals("java/lang/Object"))
+        writer.print(" extends " + classNode.superName);
+      if (Etc.some(classNode.interfaces)) {
+        writer.print(" implements ");
+        writer.print(String.join(", ", classNode.interfaces));
+      }
+      writer.print('\n');
+
+      writer.printf("  version: %d\n", classNode.version);
+      writer.printf("  flags: 0x%x\n", classNode.access);
+      if (classNode.signature != null) writer.printf("  signature: %s\n", classNode.signature);
+      if (classNode.sourceFile != null) writer.printf("  source: %s\n", classNode.sourceFile);
+
+      for (var fieldNode : classNode.fields) print(writer, fieldNode);
+      for (var methodNode : classNode.methods) print(writer, methodNode);
+    }
+    Stats.wrote(new File(file(classNode.name)).length());
+  }
+}
@@ -0,0 +1,171 @@
+package jad;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Writes text as UTF-8 straight into direct buffers, without the per-call encoder and
+// temporary strings that a PrintWriter goes through. Buffers are reused across writers, and go
+// out a batch at a time, in one gathering write where the channel allows. The output is byte
+// for byte what a UTF-8 PrintWriter would produce, including '?' for an unpaired surrogate.
+final class Utf8Writer implements Closeable {
+  private static final int SIZE = 1 << 16;
+  private static final int COUNT = 4;
+  private static final Queue<ByteBuffer[]> pool = new ConcurrentLinkedQueue<>();
+
+  private final WritableByteChannel channel;
+  private ByteBuffer[] buffers;
+  private ByteBuffer buffer;
+  private int i;
+  private final byte[] digits = new byte[11];
+
+  Utf8Writer(WritableByteChannel channel) {
+    this.channel = channel;
+    buffers = pool.poll();
+    if (buffers == null) {
+      buffers = new ByteBuffer[COUNT];
+      for (var j = 0; j < COUNT; j++) buffers[j] = ByteBuffer.allocateDirect(SIZE);
+    }
+    buffer = buffers[0];
+  }
+
+  Utf8Writer(String file) throws IOException {
+    this(
+        FileChannel.open(
+            Path.of(file),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE));
+  }
+
+  // for text that is written often enough to be worth encoding once
+  static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void drain(int n) {
+    var bytes = 0;
+    for (var j = 0; j < n; j++) bytes += buffers[j].flip().remaining();
+    Stats.wrote(bytes);
+    try {
+      if (channel instanceof GatheringByteChannel gathering)
+        while (buffers[n - 1].hasRemaining()) gathering.write(buffers, 0, n);
+      else for (var j = 0; j < n; j++) while (buffers[j].hasRemaining()) channel.write(buffers[j]);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    for (var j = 0; j < n; j++) buffers[j].clear();
+    i = 0;
+    buffer = buffers[0];
+  }
+
+  // make sure the current buffer has room for n bytes, which are not split across buffers
+  private void reserve(int n) {
+    if (buffer.remaining() >= n) return;
+    if (++i == COUNT) drain(COUNT);
+    else buffer = buffers[i];
+  }
+
+  void print(byte[] b) {
+    var j = 0;
+    while (j < b.length) {
+      if (!buffer.hasRemaining()) reserve(1);
+      var n = Math.min(buffer.remaining(), b.length - j);
+      buffer.put(b, j, n);
+      j += n;
+    }
+  }
+
+  void print(char c) {
+    reserve(3);
+    if (c < 0x80) buffer.put((byte) c);
+    else if (c < 0x800) {
+      buffer.put((byte) (0xc0 | c >> 6));
+      buffer.put((byte) (0x80 | c & 0x3f));
+    } else if (Character.isSurrogate(c)) buffer.put((byte) '?');
+    else {
+      buffer.put((byte) (0xe0 | c >> 12));
+      buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+      buffer.put((byte) (0x80 | c & 0x3f));
+    }
+  }
+
+  void print(String s) {
+    if (s == null) s = "null";
+    var n = s.length();
+    for (var j = 0; j < n; j++) {
+      var c = s.charAt(j);
+      if (c < 0x80) {
+        if (!buffer.hasRemaining()) reserve(1);
+        buffer.put((byte) c);
+        continue;
+      }
+      if (Character.isHighSurrogate(c) && j + 1 < n && Character.isLowSurrogate(s.charAt(j + 1))) {
+        var codePoint = Character.toCodePoint(c, s.charAt(++j));
+        reserve(4);
+        buffer.put((byte) (0xf0 | codePoint >> 18));
+        buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+        buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+        buffer.put((byte) (0x80 | codePoint & 0x3f));
+        continue;
+      }
+      print(c);
+    }
+  }
+
+  void print(Object a) {
+    print(String.valueOf(a));
+  }
+
+  // digits are generated from the right into a scratch array
+  void print(int n) {
+    if (n == Integer.MIN_VALUE) {
+      print("-2147483648");
+      return;
+    }
+    reserve(digits.length);
+    if (n < 0) {
+      buffer.put((byte) '-');
+      n = -n;
+    }
+    var j = digits.length;
+    do {
+      digits[--j] = (byte) ('0' + n % 10);
+      n /= 10;
+    } while (n != 0);
+    buffer.put(digits, j, digits.length - j);
+  }
+
+  // lowercase, unsigned, like Integer.toHexString
+  void hex(int n) {
+    reserve(8);
+    var j = digits.length;
+    do {
+      var d = n & 15;
+      digits[--j] = (byte) (d < 10 ? '0' + d : 'a' - 10 + d);
+      n >>>= 4;
+    } while (n != 0);
+    buffer.put(digits, j, digits.length - j);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      drain(i + 1);
+    } finally {
+      channel.close();
+      for (var b : buffers) b.clear();
+      pool.add(buffers);
+      buffers = null;
+      buffer = null;
+    }
+  }
+}
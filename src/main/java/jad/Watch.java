@@ -0,0 +1,173 @@
+package jad;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.objectweb.asm.ClassReader;
+
+// After the first run, keeps watching the input directories and renders again only the classes
+// whose files change. A compiler writes many files in a burst, so events are collected until
+// the directories have been quiet for a moment, and each file is then rendered once, however
+// many events it had. Archives and jrt:/ are not watched. Only the pages of changed classes are
+// rendered, so links from other pages to a class added or deleted meanwhile are out of date
+// until the next full run, which with -cache renders every page again for the changed inputs.
+final class Watch {
+  private static final long QUIET = 20;
+
+  private record Dir(Path root, Path dir) {}
+
+  private final WatchService service;
+  private final Map<WatchKey, Dir> dirs = new HashMap<>();
+  private final Set<Path> changed = new TreeSet<>();
+  private final Set<Path> deleted = new TreeSet<>();
+  private final Map<Path, Path> roots = new HashMap<>();
+
+  private Watch(WatchService service) {
+    this.service = service;
+  }
+
+  // a directory and everything under it, returning the class files already there
+  private List<Path> register(Path root, Path dir) throws IOException {
+    var paths = new ArrayList<Path>();
+    try (var stream = Files.walk(dir)) {
+      for (var path : stream.toList())
+        if (Files.isDirectory(path))
+          dirs.put(
+              path.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+              new Dir(root, path));
+        else if (Inputs.isClass(path) && Inputs.isPackage(root, path)) paths.add(path);
+    }
+    return paths;
+  }
+
+  private void collect(WatchKey key) throws IOException {
+    var dir = dirs.get(key);
+    for (var event : key.pollEvents()) {
+      // events were lost, so anything may have changed
+      if (event.kind() == OVERFLOW) {
+        for (var d : new ArrayList<>(dirs.values()))
+          if (d.root.equals(d.dir)) changed.addAll(register(d.root, d.root));
+        continue;
+      }
+
+      var path = dir.dir.resolve((Path) event.context());
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        changed.addAll(register(dir.root, path));
+        continue;
+      }
+      if (!Inputs.isClass(path) || !Inputs.isPackage(dir.root, path)) continue;
+      roots.put(path, dir.root);
+      if (event.kind() == ENTRY_DELETE) {
+        changed.remove(path);
+        deleted.add(path);
+      } else {
+        deleted.remove(path);
+        changed.add(path);
+      }
+    }
+    if (!key.reset()) dirs.remove(key);
+  }
+
+  // every file written for a class starts with its page name up to the first dot, and a
+  // fragment goes on with the number of its method; all of them, or only the fragments
+  private static void delete(String page, boolean fragments) throws IOException {
+    var prefix = page.substring(0, page.indexOf('.') + 1);
+    try (var stream = Files.newDirectoryStream(Path.of("."))) {
+      for (var path : stream) {
+        var s = path.getFileName().toString();
+        if (!s.startsWith(prefix)) continue;
+        if (!fragments
+            || s.length() > prefix.length() && Character.isDigit(s.charAt(prefix.length())))
+          Files.delete(path);
+      }
+    }
+  }
+
+  // a file can change again while it is being read, or be read before the compiler has
+  // finished writing it; either way there will be another event, so just report and go on
+  private static ClassReader read(Path path) {
+    try {
+      var bytes = Files.readAllBytes(path);
+      var classReader = new ClassReader(bytes);
+      var className = classReader.getClassName();
+      var page = Main.printer.file(className);
+      if (Main.cache != null && Main.cache.hit(bytes)) return null;
+      if (page != null) delete(page, true);
+
+      // what the class declared before is replaced, not added to
+      Main.printer.forget(className);
+      Main.printer.index(classReader);
+      return classReader;
+    } catch (Exception e) {
+      System.err.printf("%s: %s\n", path, e);
+      return null;
+    }
+  }
+
+  private void update() throws IOException {
+    var start = System.nanoTime();
+
+    // a class file's name under its root is the class name; deleted classes are forgotten
+    // first, so pages rendered now do not link to them
+    for (var path : deleted) {
+      var name = roots.get(path).relativize(path).toString().replace(File.separatorChar, '/');
+      var className = name.substring(0, name.length() - ".class".length());
+      Main.printer.forget(className);
+      var page = Main.printer.file(className);
+      if (page == null) continue;
+      if (Main.cache != null) Main.cache.remove(page);
+      try {
+        delete(page, false);
+      } catch (IOException e) {
+        System.err.printf("%s: %s\n", path, e);
+      }
+    }
+
+    // every changed class is indexed before any is rendered, so they can link to each other
+    var classes = Etc.map(new ArrayList<>(changed), Watch::read);
+    Etc.parallel(
+        classes.stream().filter(Objects::nonNull).toList(),
+        classReader -> {
+          try {
+            Main.printer.render(classReader);
+          } catch (Exception e) {
+            System.err.printf("%s: %s\n", classReader.getClassName(), e);
+          }
+        });
+    if (Main.cache != null) Main.cache.write();
+
+    System.err.printf(
+        "updated %d, deleted %d in %d ms\n",
+        changed.size(), deleted.size(), (System.nanoTime() - start) / 1_000_000);
+    changed.clear();
+    deleted.clear();
+  }
+
+  static void watch(List<String> args) throws IOException, InterruptedException {
+    Main.watching = true;
+    var watch = new Watch(FileSystems.getDefault().newWatchService());
+    for (var arg : args) {
+      if (arg.startsWith("jrt:/")) continue;
+      for (var s : arg.split(File.pathSeparator)) {
+        if (s.isEmpty()) continue;
+        var path = Path.of(s);
+        if (Files.isDirectory(path)) watch.register(path, path);
+      }
+    }
+    if (watch.dirs.isEmpty()) {
+      System.err.println("-watch: no input directories");
+      System.exit(1);
+    }
+
+    for (; ; ) {
+      watch.collect(watch.service.take());
+      for (WatchKey key; (key = watch.service.poll(QUIET, TimeUnit.MILLISECONDS)) != null; )
+        watch.collect(key);
+      if (!watch.changed.isEmpty() || !watch.deleted.isEmpty()) watch.update();
+    }
+  }
+}
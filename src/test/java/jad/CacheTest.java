@@ -0,0 +1,123 @@
+package jad;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+
+// Pages and fragments are found in the working directory, so each test uses classes of its
+// own package and deletes what it wrote.
+class CacheTest {
+  private static final Path MANIFEST = Path.of("cachetest.txt");
+  private static final String[] FILES = {
+    "cachetest-A.html", "cachetest-A.0.html", "cachetest-B.html", "cachetest-B.0.html"
+  };
+
+  private static byte[] bytes(String className, int version) {
+    var classWriter = new ClassWriter(0);
+    classWriter.visit(version, ACC_PUBLIC, className, null, "java/lang/Object", null);
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  private static final byte[] A = bytes("cachetest/A", V11);
+  private static final byte[] B = bytes("cachetest/B", V11);
+
+  @AfterEach
+  void delete() throws IOException {
+    Files.deleteIfExists(MANIFEST);
+    for (var s : FILES) Files.deleteIfExists(Path.of(s));
+  }
+
+  // what the rendering of a class that missed would have written
+  private static void render(String page, String fragment) throws IOException {
+    Files.writeString(Path.of(page), "");
+    Files.writeString(Path.of(fragment), "");
+  }
+
+  @Test
+  void roundTrip() throws IOException {
+    var cache = new Cache(MANIFEST, "1");
+    assertFalse(cache.hit(A));
+    assertFalse(cache.hit(B));
+    render("cachetest-A.html", "cachetest-A.0.html");
+    render("cachetest-B.html", "cachetest-B.0.html");
+    cache.close();
+    assertEquals(2, Files.readAllLines(MANIFEST).size());
+
+    // A is unchanged and B is gone, so B's page and fragment are pruned
+    cache = new Cache(MANIFEST, "1");
+    assertTrue(cache.hit(A));
+    cache.close();
+    assertTrue(Files.exists(Path.of("cachetest-A.html")));
+    assertTrue(Files.exists(Path.of("cachetest-A.0.html")));
+    assertFalse(Files.exists(Path.of("cachetest-B.html")));
+    assertFalse(Files.exists(Path.of("cachetest-B.0.html")));
+    assertEquals(1, Files.readAllLines(MANIFEST).size());
+  }
+
+  @Test
+  void changed() throws IOException {
+    var cache = new Cache(MANIFEST, "1");
+    assertFalse(cache.hit(A));
+    render("cachetest-A.html", "cachetest-A.0.html");
+    cache.close();
+
+    // the fragments of a page rendered again are deleted, since it may not have them now
+    cache = new Cache(MANIFEST, "1");
+    assertFalse(cache.hit(bytes("cachetest/A", V17)));
+    assertFalse(Files.exists(Path.of("cachetest-A.0.html")));
+    cache.close();
+  }
+
+  @Test
+  void salt() throws IOException {
+    var cache = new Cache(MANIFEST, "1");
+    assertFalse(cache.hit(A));
+    render("cachetest-A.html", "cachetest-A.0.html");
+    cache.close();
+
+    // other options can change the page for the same bytes
+    cache = new Cache(MANIFEST, "2");
+    assertFalse(cache.hit(A));
+    cache.close();
+  }
+
+  // a page links to the classes that are in the input, so it is rendered again when they change
+  @Test
+  void classes() throws IOException {
+    var cache = new Cache(MANIFEST, "1");
+    cache.classes(List.of("cachetest/A", "cachetest/B"), List.of());
+    assertFalse(cache.hit(A));
+    render("cachetest-A.html", "cachetest-A.0.html");
+    cache.close();
+
+    cache = new Cache(MANIFEST, "1");
+    cache.classes(List.of("cachetest/B", "cachetest/A"), List.of());
+    assertTrue(cache.hit(A));
+    cache.close();
+
+    cache = new Cache(MANIFEST, "1");
+    cache.classes(List.of("cachetest/A"), List.of());
+    assertFalse(cache.hit(A));
+    cache.close();
+  }
+
+  // a page that was deleted is rendered again, whatever the manifest says
+  @Test
+  void missingPage() throws IOException {
+    var cache = new Cache(MANIFEST, "1");
+    assertFalse(cache.hit(A));
+    cache.close();
+
+    cache = new Cache(MANIFEST, "1");
+    assertFalse(cache.hit(A));
+    cache.close();
+  }
+}
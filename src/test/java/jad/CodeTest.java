@@ -0,0 +1,112 @@
+package jad;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import org.apache.commons.text.StringSubstitutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.*;
+
+class CodeTest {
+  // a method with an instruction of each size, and those whose size the tree does not show:
+  // short forms of loads and stores, wide, ldc_w and padded switches
+  private static byte[] bytes() {
+    var classWriter = new ClassWriter(0);
+    classWriter.visit(V1_6, ACC_PUBLIC, "codetest/A", null, "java/lang/Object", null);
+    var mv = classWriter.visitMethod(ACC_STATIC, "f", "(I)V", null, null);
+    mv.visitCode();
+    var a = new Label();
+    var b = new Label();
+    mv.visitVarInsn(ILOAD, 0);
+    mv.visitVarInsn(ISTORE, 300);
+    mv.visitIincInsn(300, 1000);
+    mv.visitIincInsn(1, 1);
+    mv.visitIntInsn(BIPUSH, 5);
+    mv.visitIntInsn(SIPUSH, 1000);
+    mv.visitLdcInsn(100000);
+
+    // enough constants that the next one needs a two-byte index
+    for (var i = 0; i < 300; i++) classWriter.newConst("s" + i);
+    mv.visitLdcInsn(200000);
+    mv.visitLdcInsn(1L);
+    mv.visitInsn(POP2);
+    mv.visitVarInsn(ILOAD, 0);
+    mv.visitTableSwitchInsn(0, 2, a, a, b, a);
+    mv.visitVarInsn(ILOAD, 0);
+    mv.visitInsn(NOP);
+    mv.visitLookupSwitchInsn(b, new int[] {1, 10}, new Label[] {a, b});
+    mv.visitLabel(a);
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKEINTERFACE, "java/lang/Runnable", "run", "()V", true);
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Thread", "yield", "()V", false);
+    mv.visitInsn(ICONST_1);
+    mv.visitInsn(ICONST_1);
+    mv.visitMultiANewArrayInsn("[[I", 2);
+    mv.visitIntInsn(NEWARRAY, T_INT);
+    mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+    mv.visitJumpInsn(IFNULL, b);
+    mv.visitJumpInsn(GOTO, a);
+    mv.visitLabel(b);
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(4, 301);
+    mv.visitEnd();
+    classWriter.visitEnd();
+    return classWriter.toByteArray();
+  }
+
+  // as javap -c prints them, then the code length
+  @Test
+  void offsets() {
+    var expected =
+        new int[] {
+          0, 1, 5, 11, 14, 16, 19, 21, 24, 27, 28, 29, 56, 57, 58, 84, 85, 90, 93, 94, 95, 99, 101,
+          104, 107, 110, 111
+        };
+    var methods = Code.methods(new ClassReader(bytes()));
+    assertEquals(1, methods.size());
+    assertArrayEquals(expected, methods.get(0).offsets());
+
+    // the tree has one instruction for each offset
+    var classNode = Code.parse(new ClassReader(bytes()), 0);
+    var methodNode = classNode.methods.get(0);
+    assertArrayEquals(expected, HtmlPrinter.offsets(methodNode));
+    assertEquals(expected.length - 1, new MethodIndex(methodNode).size());
+  }
+
+  // every branch, by the offsets in its bytes, lands on the instruction the tree says, and
+  // nothing else branches
+  @ParameterizedTest
+  @ValueSource(classes = {ClassReader.class, ClassWriter.class, StringSubstitutor.class})
+  void branches(Class<?> c) throws IOException {
+    ClassReader classReader;
+    try (var stream = c.getResourceAsStream(c.getSimpleName() + ".class")) {
+      classReader = new ClassReader(stream);
+    }
+    var code = new ArrayList<Integer>();
+    Code.methods(classReader, (name, desc, u) -> code.add(u + 8));
+    var classNode = Code.parse(classReader, 0);
+    for (var i = 0; i < code.size(); i++) {
+      var methodNode = classNode.methods.get(i);
+      var offsets = HtmlPrinter.offsets(methodNode);
+      if (offsets == null) continue;
+      var u = code.get(i);
+      var index = new MethodIndex(methodNode);
+      assertEquals(index.size() + 1, offsets.length);
+      assertEquals(classReader.readInt(u - 4), offsets[index.size()]);
+      for (var k = 0; k < index.size(); k++) {
+        var targets = Code.targets(classReader, u, offsets[k]);
+        var from = index.targetStart[k];
+        assertEquals(index.targetStart[k + 1] - from, targets.length);
+        for (var j = 0; j < targets.length; j++) {
+          // a switch's default has no label id unless something else branches to it
+          var label = index.targets[from + j];
+          if (label >= 0) assertEquals(targets[j], offsets[index.labelOrdinals[label]]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package jad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.text.StringEscapeUtils;
+import org.apache.commons.text.StringSubstitutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SimpleVerifier;
+
+// The single-pass renderer must write the same page as the tree-based one. Classes come from
+// the libraries on the class path, which have plenty of branches, switches and handlers.
+class HtmlVisitorTest {
+  @AfterEach
+  void reset() {
+    Main.visitor = false;
+  }
+
+  private static String page(ClassReader classReader, boolean visitor) throws IOException {
+    Main.visitor = visitor;
+    var bytes = new HtmlPrinter.Format().page(classReader);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      classes = {
+        ClassReader.class,
+        ClassWriter.class,
+        Type.class,
+        Analyzer.class,
+        Frame.class,
+        SimpleVerifier.class,
+        StringEscapeUtils.class,
+        StringSubstitutor.class,
+      })
+  void sameAsTree(Class<?> c) throws IOException {
+    ClassReader classReader;
+    try (var stream = c.getResourceAsStream(c.getSimpleName() + ".class")) {
+      classReader = new ClassReader(stream);
+    }
+    assertEquals(page(classReader, false), page(classReader, true));
+  }
+}
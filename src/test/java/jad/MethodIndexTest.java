@@ -0,0 +1,109 @@
+package jad;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.objectweb.asm.Opcodes.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import org.apache.commons.text.StringSubstitutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.*;
+
+class MethodIndexTest {
+  @Test
+  void labels() {
+    var a = new LabelNode();
+    var b = new LabelNode();
+    var c = new LabelNode();
+    var d = new LabelNode();
+    var methodNode = new MethodNode(ACC_STATIC, "f", "(I)I", null, null);
+    var instructions = methodNode.instructions;
+    instructions.add(a);
+    instructions.add(new LineNumberNode(10, a));
+    instructions.add(new VarInsnNode(ILOAD, 0));
+    instructions.add(new JumpInsnNode(IFEQ, b));
+    instructions.add(new VarInsnNode(ILOAD, 0));
+    instructions.add(new TableSwitchInsnNode(0, 1, d, b, c));
+    instructions.add(b);
+    instructions.add(new LineNumberNode(11, b));
+    instructions.add(new InsnNode(ICONST_0));
+    instructions.add(new InsnNode(IRETURN));
+    instructions.add(c);
+    instructions.add(new FrameNode(F_SAME, 0, null, 0, null));
+    instructions.add(new InsnNode(ICONST_1));
+    instructions.add(new InsnNode(IRETURN));
+
+    // only the switch goes to d, as its default, so d is not a label of its own
+    instructions.add(d);
+    instructions.add(new InsnNode(ICONST_2));
+    instructions.add(new InsnNode(IRETURN));
+
+    var index = new MethodIndex(methodNode);
+    assertEquals(10, index.size());
+    assertArrayEquals(new int[] {2, 3, 4, 5, 8, 9, 12, 13, 15, 16}, index.indexes);
+    assertArrayEquals(
+        new int[] {
+          ILOAD, IFEQ, ILOAD, TABLESWITCH, ICONST_0, IRETURN, ICONST_1, IRETURN, ICONST_2, IRETURN
+        },
+        index.opcodes);
+    assertArrayEquals(new int[] {10, -1, -1, -1, 11, -1, -1, -1, -1, -1}, index.lines);
+    assertArrayEquals(new int[] {-1, -1, -1, -1, 0, -1, 1, -1, -1, -1}, index.labels);
+    assertArrayEquals(new int[] {4, 6}, index.labelOrdinals);
+    assertArrayEquals(new int[] {0, 0, 1, 1, 4, 4, 4, 4, 4, 4, 4}, index.targetStart);
+    assertArrayEquals(new int[] {0, -1, 0, 1}, index.targets);
+  }
+
+  // the first real instruction at or after position i in the list
+  private static AbstractInsnNode real(InsnList instructions, int i) {
+    while (instructions.get(i).getOpcode() < 0) i++;
+    return instructions.get(i);
+  }
+
+  // every branch target found through the index is where the tree says it is
+  @ParameterizedTest
+  @ValueSource(classes = {ClassReader.class, ClassWriter.class, StringSubstitutor.class})
+  void sameAsTree(Class<?> c) throws IOException {
+    var classNode = new ClassNode(ASM9);
+    try (var stream = c.getResourceAsStream(c.getSimpleName() + ".class")) {
+      new ClassReader(stream).accept(classNode, 0);
+    }
+    for (var methodNode : classNode.methods) {
+      var instructions = methodNode.instructions;
+      var index = new MethodIndex(methodNode);
+      for (var k = 0; k < index.size(); k++) {
+        var abstractInsnNode = instructions.get(index.indexes[k]);
+        assertEquals(abstractInsnNode.getOpcode(), index.opcodes[k]);
+        if (index.labels[k] >= 0) assertEquals(k, index.labelOrdinals[index.labels[k]]);
+        var labels = new ArrayList<LabelNode>();
+        switch (abstractInsnNode) {
+          case JumpInsnNode a -> labels.add(a.label);
+          case TableSwitchInsnNode a -> {
+            labels.add(a.dflt);
+            labels.addAll(a.labels);
+          }
+          case LookupSwitchInsnNode a -> {
+            labels.add(a.dflt);
+            labels.addAll(a.labels);
+          }
+          default -> {}
+        }
+        assertEquals(labels.size(), index.targetStart[k + 1] - index.targetStart[k]);
+        for (var j = 0; j < labels.size(); j++) {
+          var id = index.targets[index.targetStart[k] + j];
+
+          // only a default may go unnamed
+          if (id < 0) {
+            assertEquals(0, j);
+            continue;
+          }
+          var target = instructions.get(index.indexes[index.labelOrdinals[id]]);
+          assertSame(real(instructions, instructions.indexOf(labels.get(j))), target);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package jad;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OptionTest {
+  @TempDir Path dir;
+
+  private final List<String> values = new ArrayList<>();
+
+  private final Option[] options = {
+    new Option("a number", "N", "n") {
+      void accept(String arg) {
+        values.add(arg);
+      }
+    },
+    new Option("a flag", null, "f") {
+      void accept(String arg) {
+        values.add("f");
+      }
+    },
+  };
+
+  @AfterEach
+  void clear() {
+    Option.positionalArgs.clear();
+  }
+
+  private String file(String name, String... lines) throws IOException {
+    return "@" + Files.write(dir.resolve(name), List.of(lines));
+  }
+
+  @Test
+  void args() throws IOException {
+    Option.parse(options, new String[] {"-n", "1", "--n=2", "-f", "a.class", "", "b.jar"});
+    assertEquals(List.of("1", "2", "f"), values);
+    assertEquals(List.of("a.class", "b.jar"), Option.positionalArgs);
+  }
+
+  // each line of a response file is one arg, as if given in its place on the command line
+  @Test
+  void responseFile() throws IOException {
+    var inner = file("inner", "-f", "c.class");
+    var outer = file("outer", "-n", "1", "a class with spaces.class", "", inner, "-n:2");
+    Option.parse(options, new String[] {"a.class", outer, "b.class"});
+    assertEquals(List.of("1", "f", "2"), values);
+    assertEquals(
+        List.of("a.class", "a class with spaces.class", "c.class", "b.class"),
+        Option.positionalArgs);
+  }
+
+  // a response file can list many thousands of inputs
+  @Test
+  void longResponseFile() throws IOException {
+    var lines = new ArrayList<String>();
+    for (var i = 0; i < 100_000; i++) lines.add(i + ".class");
+    Option.parse(options, new String[] {file("long", lines.toArray(new String[0]))});
+    assertEquals(lines, Option.positionalArgs);
+  }
+}